@@ -0,0 +1,286 @@
+package com.cryptomodule;
+
+import android.util.Log;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import javax.crypto.Cipher;
+
+// ✅ Tunes network read size and cipher/write batch size from observed throughput.
+// Reads fill a batch buffer; each full batch is decrypted and written in one go.
+// - Read size grows while reads come back full (data is waiting) and shrinks when they are mostly empty.
+// - Batch size targets ~250ms of input at the observed read rate (keeps progressive output
+//   flowing on slow networks) but no more than ~50ms of cipher+write work (bounded latency),
+//   which also amortizes per-write costs like fsync on fast devices.
+final class AdaptiveChunkSizer {
+    private static final String TAG = "CryptoModule";
+    static final int MIN_READ_SIZE = 4 * 1024;
+    static final int MAX_READ_SIZE = 256 * 1024;
+    static final int MIN_BATCH_SIZE = 64 * 1024;
+    static final int MAX_BATCH_SIZE = 4 * 1024 * 1024;
+
+    private static final double FILL_TARGET_SECONDS = 0.25;
+    private static final long FILL_TARGET_NANOS = (long) (FILL_TARGET_SECONDS * 1e9);
+    private static final double PROCESS_TARGET_SECONDS = 0.05;
+    private static final double EWMA_WEIGHT = 0.3;
+    private static final int AES_BLOCK_SIZE = 16;
+
+    private final int maxBatchSize;
+    private final MemoryBudget memoryBudget; // null = buffers are not budgeted
+    private int readSize;
+    private int batchSize;
+    private int retunes = 0;
+
+    // Exponentially weighted averages, bytes per second (0 = no sample yet)
+    private double readBytesPerSecond = 0;
+    private double cipherBytesPerSecond = 0;
+    private double writeBytesPerSecond = 0;
+    private double readFillRatio = 1;
+    private long pendingReadBytes = 0;
+    private long pendingReadNanos = 0;
+
+    AdaptiveChunkSizer(int initialBatchSize, int maxBatchSize) {
+        this(initialBatchSize, maxBatchSize, null);
+    }
+
+    AdaptiveChunkSizer(int initialBatchSize, int maxBatchSize, MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        this.maxBatchSize = Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, maxBatchSize));
+        this.readSize = 16 * 1024; // Same starting point as the fixed-size paths
+        this.batchSize = clampBatch(initialBatchSize);
+    }
+
+    // Starts at the smallest batch so slow links see output early; growing 2x per batch reaches
+    // the fastest sizes within a few batches. Batches stay within half the in-memory threshold
+    static AdaptiveChunkSizer forDevice(MemoryBudget memoryBudget) {
+        int maxBatchSize = (int) Math.min(MAX_BATCH_SIZE, memoryBudget.getInMemoryThreshold() / 2);
+        return new AdaptiveChunkSizer(MIN_BATCH_SIZE, maxBatchSize, memoryBudget);
+    }
+
+    int getReadSize() {
+        return readSize;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    int getRetunes() {
+        return retunes;
+    }
+
+    double getReadBytesPerSecond() {
+        return readBytesPerSecond;
+    }
+
+    double getCipherBytesPerSecond() {
+        return cipherBytesPerSecond;
+    }
+
+    double getWriteBytesPerSecond() {
+        return writeBytesPerSecond;
+    }
+
+    // Read rate is aggregated per batch: a single read of already-buffered data is near-instant
+    // and would wildly overstate the network rate on its own
+    void recordRead(int bytesRead, int requested, long nanos) {
+        if (bytesRead <= 0) {
+            return;
+        }
+        pendingReadBytes += bytesRead;
+        pendingReadNanos += nanos;
+        readFillRatio = EWMA_WEIGHT * ((double) bytesRead / requested) + (1 - EWMA_WEIGHT) * readFillRatio;
+
+        if (bytesRead == requested && requested == readSize) {
+            readSize = Math.min(Math.min(readSize * 2, MAX_READ_SIZE), batchSize);
+        } else if (readFillRatio < 0.25) {
+            readSize = Math.max(readSize / 2, MIN_READ_SIZE);
+        }
+    }
+
+    void recordCipher(int bytes, long nanos) {
+        if (bytes > 0) {
+            cipherBytesPerSecond = ewma(cipherBytesPerSecond, rate(bytes, nanos));
+        }
+    }
+
+    void recordWrite(int bytes, long nanos) {
+        if (bytes > 0) {
+            writeBytesPerSecond = ewma(writeBytesPerSecond, rate(bytes, nanos));
+        }
+    }
+
+    // Called after each batch; returns true when the batch size changed
+    boolean retune() {
+        if (pendingReadBytes > 0) {
+            readBytesPerSecond = ewma(readBytesPerSecond, rate(pendingReadBytes, pendingReadNanos));
+            pendingReadBytes = 0;
+            pendingReadNanos = 0;
+        }
+        if (readBytesPerSecond <= 0 || cipherBytesPerSecond <= 0) {
+            return false;
+        }
+
+        // Combined cipher + write rate (time per byte adds up)
+        double processSecondsPerByte = 1 / cipherBytesPerSecond
+            + (writeBytesPerSecond > 0 ? 1 / writeBytesPerSecond : 0);
+        double fillLimited = readBytesPerSecond * FILL_TARGET_SECONDS;
+        double processLimited = PROCESS_TARGET_SECONDS / processSecondsPerByte;
+        int target = clampBatch((int) Math.min(Math.min(fillLimited, processLimited), Integer.MAX_VALUE));
+
+        // Move at most 2x per batch to avoid oscillating on noisy samples; the halved size is
+        // rounded up to a whole AES block so block alignment never turns into a bigger step
+        int halved = ((batchSize / 2 + AES_BLOCK_SIZE - 1) / AES_BLOCK_SIZE) * AES_BLOCK_SIZE;
+        target = Math.max(halved, Math.min(batchSize * 2, target));
+        if (target == batchSize) {
+            return false;
+        }
+        batchSize = target;
+        readSize = Math.min(readSize, batchSize);
+        retunes++;
+        return true;
+    }
+
+    /**
+     * Adaptive decrypt loop: reads of getReadSize() fill a batch buffer, each full batch is
+     * decrypted and written (and optionally synced) at once, then both sizes are retuned.
+     * A batch that takes longer than FILL_TARGET_SECONDS to fill is flushed early (whole AES
+     * blocks only), so slow links keep producing output.
+     * The batch and output buffers are reserved from the memory budget; a bigger batch is only
+     * taken when the budget has room for it right now. Returns the number of ciphertext bytes read.
+     */
+    long decryptStream(InputStream input, OutputStream output, Cipher cipher, BufferPool bufferPool, boolean syncEachBatch) throws Exception {
+        MemoryBudget.Reservation reservation = memoryBudget != null
+            ? memoryBudget.reserve(getWorkingSetBytes(), MemoryBudget.DEFAULT_ACQUIRE_TIMEOUT_MS)
+            : null;
+        try {
+            return decryptStream(input, output, cipher, bufferPool, syncEachBatch, reservation);
+        } finally {
+            if (reservation != null) {
+                reservation.close();
+            }
+        }
+    }
+
+    /**
+     * Same loop, for callers that already hold budget: reservation must include getWorkingSetBytes()
+     * for the buffers (null = unbudgeted). It is only grown with tryGrow, so a caller holding other
+     * budget never waits here, and it is left open for the caller to close.
+     */
+    long decryptStream(InputStream input, OutputStream output, Cipher cipher, BufferPool bufferPool, boolean syncEachBatch,
+                       MemoryBudget.Reservation reservation) throws Exception {
+        long workingSetBytes = getWorkingSetBytes();
+        byte[] batchBuffer = null;
+        byte[] outputBuffer = null;
+        int filled = 0;
+        long totalRead = 0;
+
+        try {
+            batchBuffer = bufferPool.acquire(batchSize);
+            outputBuffer = bufferPool.acquire(batchSize + AES_BLOCK_SIZE);
+            long fillStart = System.nanoTime();
+
+            while (true) {
+                int requested = Math.min(readSize, batchSize - filled);
+                long readStart = System.nanoTime();
+                int bytesRead = input.read(batchBuffer, filled, requested);
+                if (bytesRead == -1) {
+                    break;
+                }
+                recordRead(bytesRead, requested, System.nanoTime() - readStart);
+                filled += bytesRead;
+                totalRead += bytesRead;
+
+                boolean overdue = filled >= AES_BLOCK_SIZE && System.nanoTime() - fillStart > FILL_TARGET_NANOS;
+                if (filled < batchSize && !overdue) {
+                    continue;
+                }
+
+                // Full (or overdue) batch: decrypt and write the whole blocks, keep the tail
+                int ready = filled - filled % AES_BLOCK_SIZE;
+                long cipherStart = System.nanoTime();
+                int outputLength = cipher.update(batchBuffer, 0, ready, outputBuffer);
+                recordCipher(ready, System.nanoTime() - cipherStart);
+                writeBatch(output, outputBuffer, outputLength, syncEachBatch);
+                filled -= ready;
+                System.arraycopy(batchBuffer, ready, batchBuffer, 0, filled);
+                fillStart = System.nanoTime();
+
+                int previousBatchSize = batchSize;
+                if (retune()) {
+                    long extraBytes = reservation != null ? getWorkingSetBytes() - workingSetBytes : 0;
+                    if (extraBytes > 0 && !tryGrow(reservation, extraBytes)) {
+                        // Budget is busy - keep the current buffers rather than wait mid-stream
+                        batchSize = previousBatchSize;
+                        readSize = Math.min(readSize, batchSize);
+                        retunes--;
+                        Log.d(TAG, "⏳ Memory budget busy, keeping batch size " + batchSize);
+                        continue;
+                    }
+                    workingSetBytes += Math.max(0, extraBytes);
+                    Log.d(TAG, String.format("🎚️ Adaptive sizes: read %d, batch %d", readSize, batchSize));
+                    if (batchBuffer.length < batchSize || outputBuffer.length < batchSize + AES_BLOCK_SIZE) {
+                        byte[] previousBatch = batchBuffer;
+                        bufferPool.release(outputBuffer);
+                        outputBuffer = null; // Avoid a double release in finally if acquire fails
+                        batchBuffer = bufferPool.acquire(batchSize);
+                        System.arraycopy(previousBatch, 0, batchBuffer, 0, filled); // Partial block tail
+                        bufferPool.release(previousBatch);
+                        outputBuffer = bufferPool.acquire(batchSize + AES_BLOCK_SIZE);
+                    }
+                }
+            }
+
+            // ✅ Remaining partial batch plus padding removal
+            int finalLength = cipher.doFinal(batchBuffer, 0, filled, outputBuffer);
+            writeBatch(output, outputBuffer, finalLength, syncEachBatch);
+        } finally {
+            bufferPool.release(batchBuffer);
+            bufferPool.release(outputBuffer);
+        }
+        return totalRead;
+    }
+
+    // Pooled batch + output buffer bytes at the current batch size
+    long getWorkingSetBytes() {
+        return (long) BufferPool.capacityFor(batchSize) + BufferPool.capacityFor(batchSize + AES_BLOCK_SIZE);
+    }
+
+    // tryGrow clamps at the whole budget, so check the full amount was granted
+    private static boolean tryGrow(MemoryBudget.Reservation reservation, long bytes) {
+        long before = reservation.getBytes();
+        return reservation.tryGrow(bytes) && reservation.getBytes() - before == bytes;
+    }
+
+    private void writeBatch(OutputStream output, byte[] buffer, int length, boolean sync) throws IOException {
+        if (length <= 0) {
+            return;
+        }
+        long writeStart = System.nanoTime();
+        output.write(buffer, 0, length);
+        if (sync && output instanceof FileOutputStream) {
+            // Same visibility guarantee as the fixed-size path, but once per batch instead of per read
+            output.flush();
+            ((FileOutputStream) output).getFD().sync();
+        }
+        recordWrite(length, System.nanoTime() - writeStart);
+    }
+
+    private int clampBatch(int size) {
+        int clamped = Math.max(MIN_BATCH_SIZE, Math.min(maxBatchSize, size));
+        return (clamped / AES_BLOCK_SIZE) * AES_BLOCK_SIZE;
+    }
+
+    private static double rate(long bytes, long nanos) {
+        return bytes / (Math.max(nanos, 1000) / 1e9); // Floor at 1µs so instant reads do not divide by ~0
+    }
+
+    private static double ewma(double current, double sample) {
+        return current == 0 ? sample : EWMA_WEIGHT * sample + (1 - EWMA_WEIGHT) * current;
+    }
+}
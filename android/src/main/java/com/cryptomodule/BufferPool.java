@@ -0,0 +1,171 @@
+package com.cryptomodule;
+
+import android.util.Log;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// ✅ Size-classed pool of reusable byte[] buffers shared by all streaming paths.
+// Class sizes are powers of two plus one spare AES block, so a chunk-sized buffer can also
+// serve as the cipher output buffer (update/doFinal may emit up to one extra block).
+final class BufferPool {
+    private static final String TAG = "CryptoModule";
+    private static final int AES_BLOCK_SIZE = 16;
+    private static final int MIN_CLASS_SHIFT = 12; // 4KB
+    private static final int MAX_CLASS_SHIFT = 24; // 16MB
+    private static final int MAX_BUFFERS_PER_CLASS = 4;
+
+    private final ArrayDeque<byte[]>[] freeLists;
+    private final long maxRetainedBytes;
+    private final boolean trackLeaks;
+    // Outstanding buffers, so a double release can never put one array on a free list twice.
+    // Debug builds hold them strongly with their acquire site for the leak report; release builds
+    // hold them weakly (byte[] has identity equals/hashCode), so a missed release never pins a buffer
+    private final Map<byte[], Throwable> outstanding;
+
+    private long retainedBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long discarded = 0;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    BufferPool(long maxRetainedBytes, boolean trackLeaks) {
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.trackLeaks = trackLeaks;
+        this.outstanding = trackLeaks ? new IdentityHashMap<>() : new WeakHashMap<>();
+        this.freeLists = new ArrayDeque[MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1];
+        for (int i = 0; i < freeLists.length; i++) {
+            freeLists[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Returns a buffer of at least minSize bytes. The array may be larger than requested,
+     * so callers must always pass explicit offsets/lengths and never rely on buffer.length.
+     */
+    synchronized byte[] acquire(int minSize) {
+        int sizeClass = sizeClassFor(minSize);
+        byte[] buffer = null;
+
+        if (sizeClass >= 0) {
+            buffer = freeLists[sizeClass].pollFirst();
+            if (buffer != null) {
+                retainedBytes -= buffer.length;
+                hits++;
+            } else {
+                buffer = new byte[classCapacity(sizeClass)];
+                misses++;
+            }
+        } else {
+            // Larger than the biggest class - allocate exactly, never pooled
+            buffer = new byte[minSize];
+            misses++;
+        }
+
+        outstanding.put(buffer, trackLeaks
+            ? new Throwable("Buffer of " + buffer.length + " bytes acquired here")
+            : null);
+        return buffer;
+    }
+
+    synchronized void release(byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (!outstanding.containsKey(buffer)) {
+            Log.w(TAG, "⚠️ BufferPool: release of a buffer that is not outstanding (double release?)");
+            return;
+        }
+        outstanding.remove(buffer);
+
+        int sizeClass = exactSizeClass(buffer.length);
+        if (sizeClass < 0
+                || freeLists[sizeClass].size() >= MAX_BUFFERS_PER_CLASS
+                || retainedBytes + buffer.length > maxRetainedBytes) {
+            discarded++;
+            return;
+        }
+        freeLists[sizeClass].addFirst(buffer);
+        retainedBytes += buffer.length;
+    }
+
+    // Drops all idle buffers (e.g. on module teardown or memory pressure)
+    synchronized void clear() {
+        for (ArrayDeque<byte[]> freeList : freeLists) {
+            freeList.clear();
+        }
+        retainedBytes = 0;
+    }
+
+    // Debug only: logs every buffer that was acquired but never released
+    synchronized int reportLeaks() {
+        if (!trackLeaks) {
+            return 0;
+        }
+        for (Throwable site : outstanding.values()) {
+            Log.e(TAG, "❌ BufferPool leak: " + site.getMessage(), site);
+        }
+        return outstanding.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    synchronized long getDiscarded() {
+        return discarded;
+    }
+
+    synchronized long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    // Without leak tracking, buffers dropped without release stop counting once collected
+    synchronized int getOutstandingCount() {
+        return outstanding.size();
+    }
+
+    boolean isTrackingLeaks() {
+        return trackLeaks;
+    }
+
+    // Actual length of the array acquire(minSize) returns, for reserving memory budget up front
+    static int capacityFor(int minSize) {
+        int sizeClass = sizeClassFor(minSize);
+        return sizeClass >= 0 ? classCapacity(sizeClass) : minSize;
+    }
+
+    private static int classCapacity(int sizeClass) {
+        return (1 << (sizeClass + MIN_CLASS_SHIFT)) + AES_BLOCK_SIZE;
+    }
+
+    // Smallest class whose capacity fits minSize, or -1 if larger than the biggest class
+    private static int sizeClassFor(int minSize) {
+        for (int i = 0; i <= MAX_CLASS_SHIFT - MIN_CLASS_SHIFT; i++) {
+            if (classCapacity(i) >= minSize) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Class of a buffer this pool allocated, or -1 for foreign / oversized arrays
+    private static int exactSizeClass(int length) {
+        for (int i = 0; i <= MAX_CLASS_SHIFT - MIN_CLASS_SHIFT; i++) {
+            if (classCapacity(i) == length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
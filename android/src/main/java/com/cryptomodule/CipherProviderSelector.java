@@ -0,0 +1,314 @@
+package com.cryptomodule;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+import java.security.Provider;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+// ✅ Picks the fastest correct JCE provider for AES-CBC decryption with a one-time micro-benchmark.
+// The result is persisted per OS build (Build.FINGERPRINT) so calibration only reruns after an
+// OS update; an explicit override always wins.
+final class CipherProviderSelector {
+    private static final String TAG = "CryptoModule";
+    private static final String PREFS_NAME = "CryptoModuleCipherProvider";
+    private static final String PREF_FINGERPRINT = "fingerprint";
+    private static final String PREF_PROVIDER = "provider";
+    private static final String PREF_CHUNK_SIZE = "chunkSize";
+    private static final String PREF_OVERRIDE = "override";
+
+    static final String SOURCE_DEFAULT = "default";
+    static final String SOURCE_CACHED = "cached";
+    static final String SOURCE_BENCHMARK = "benchmark";
+    static final String SOURCE_OVERRIDE = "override";
+
+    private static final int BENCHMARK_BYTES = 1024 * 1024; // 1MB per measurement
+    private static final int BENCHMARK_CHUNK_SIZE = 64 * 1024;
+    private static final int[] CANDIDATE_CHUNK_SIZES = { 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024 };
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 3;
+
+    // NIST SP 800-38A F.2.5 (CBC-AES256.Encrypt) known-answer vector
+    private static final byte[] KAT_KEY = hex("603deb1015ca71be2b73aef0857d77811f352c073b6108d72d9810a30914dff4");
+    private static final byte[] KAT_IV = hex("000102030405060708090a0b0c0d0e0f");
+    private static final byte[] KAT_PLAINTEXT = hex(
+        "6bc1bee22e409f96e93d7e117393172aae2d8a571e03ac9c9eb76fac45af8e51"
+        + "30c81c46a35ce411e5fbc1191a0a52eff69f2445df4f9b17ad2b417be66c3710");
+    private static final byte[] KAT_CIPHERTEXT = hex(
+        "f58c4c04d6e5f1ba779eabfb5f7bfbd69cfc4e967edb808d679f777bc6702c7d"
+        + "39f23369a9d9bacfa530e26304231461b2eb05e2c39be9fcda6c19078c6a9d1b");
+
+    private final String transformation;
+    private final SharedPreferences prefs;
+
+    private volatile Provider selectedProvider = null;
+    private volatile String source = SOURCE_DEFAULT;
+    private volatile int recommendedChunkSize = 0;
+    private volatile boolean calibrating = false;
+    // Last benchmark results: provider name -> decrypt throughput in MB/s (0 = failed KAT)
+    private volatile Map<String, Double> lastResults = Collections.emptyMap();
+
+    CipherProviderSelector(Context context, String transformation) {
+        this.transformation = transformation;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Loads the override or cached choice, or calibrates on a background thread when there is
+     * none for this OS build. Until calibration finishes newCipher() uses the default provider.
+     */
+    void initialize() {
+        String override = prefs.getString(PREF_OVERRIDE, null);
+        if (override != null && applyProvider(override, SOURCE_OVERRIDE)) {
+            // The chunk size hint from the last calibration still applies to the chosen provider
+            recommendedChunkSize = prefs.getInt(PREF_CHUNK_SIZE, 0);
+            return;
+        }
+
+        if (Build.FINGERPRINT.equals(prefs.getString(PREF_FINGERPRINT, null))
+                && applyProvider(prefs.getString(PREF_PROVIDER, null), SOURCE_CACHED)) {
+            recommendedChunkSize = prefs.getInt(PREF_CHUNK_SIZE, 0);
+            return;
+        }
+
+        calibrateInBackground();
+    }
+
+    Cipher newCipher() throws Exception {
+        return newCipher(transformation);
+    }
+
+    // Same provider, different transformation (e.g. AES/CBC/NoPadding for mid-file ranges)
+    Cipher newCipher(String cipherTransformation) throws Exception {
+        Provider provider = selectedProvider;
+        if (provider != null) {
+            try {
+                return Cipher.getInstance(cipherTransformation, provider);
+            } catch (Exception e) {
+                Log.w(TAG, "⚠️ Provider " + provider.getName() + " unavailable, using default: " + e.getMessage());
+            }
+        }
+        return Cipher.getInstance(cipherTransformation);
+    }
+
+    // Pass null or empty to clear the override and recalibrate
+    synchronized boolean setOverride(String providerName) {
+        if (providerName == null || providerName.isEmpty()) {
+            prefs.edit().remove(PREF_OVERRIDE).remove(PREF_FINGERPRINT).apply();
+            selectedProvider = null;
+            source = SOURCE_DEFAULT;
+            calibrateInBackground();
+            return true;
+        }
+        if (!applyProvider(providerName, SOURCE_OVERRIDE)) {
+            return false;
+        }
+        prefs.edit().putString(PREF_OVERRIDE, providerName).apply();
+        return true;
+    }
+
+    String getProviderName() {
+        Provider provider = selectedProvider;
+        return provider != null ? provider.getName() : SOURCE_DEFAULT;
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    int getRecommendedChunkSize() {
+        return recommendedChunkSize;
+    }
+
+    boolean isCalibrating() {
+        return calibrating;
+    }
+
+    Map<String, Double> getLastResults() {
+        return lastResults;
+    }
+
+    private synchronized void calibrateInBackground() {
+        if (calibrating) {
+            return;
+        }
+        calibrating = true;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    calibrate();
+                } catch (Exception e) {
+                    Log.e(TAG, "❌ Cipher provider calibration failed: " + e.getMessage(), e);
+                } finally {
+                    calibrating = false;
+                }
+            }
+        }, "CryptoModule-cipher-calibration");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private void calibrate() throws Exception {
+        long startTime = System.nanoTime();
+        byte[] plaintext = new byte[BENCHMARK_BYTES];
+        new Random(0).nextBytes(plaintext);
+        byte[] output = new byte[BENCHMARK_BYTES + 16];
+
+        Map<String, Double> results = new LinkedHashMap<>();
+        Provider fastest = null;
+        double fastestThroughput = 0;
+
+        for (Provider provider : candidateProviders()) {
+            double throughput = 0;
+            try {
+                if (passesKnownAnswerTest(provider)) {
+                    byte[] ciphertext = encrypt(provider, plaintext);
+                    throughput = measureDecryptThroughput(provider, ciphertext, BENCHMARK_CHUNK_SIZE, output);
+                } else {
+                    Log.w(TAG, "⚠️ Provider " + provider.getName() + " failed the AES-CBC known-answer test");
+                }
+            } catch (Exception e) {
+                Log.d(TAG, "Provider " + provider.getName() + " skipped: " + e.getMessage());
+                continue;
+            }
+            results.put(provider.getName(), throughput);
+            Log.d(TAG, String.format("🏁 %s: %.1f MB/s", provider.getName(), throughput));
+            if (throughput > fastestThroughput) {
+                fastestThroughput = throughput;
+                fastest = provider;
+            }
+        }
+
+        lastResults = Collections.unmodifiableMap(results);
+        if (fastest == null) {
+            Log.w(TAG, "⚠️ No provider passed calibration, keeping default");
+            return;
+        }
+
+        // Chunk size sweep on the winner
+        byte[] ciphertext = encrypt(fastest, plaintext);
+        int bestChunkSize = BENCHMARK_CHUNK_SIZE;
+        double bestChunkThroughput = 0;
+        for (int chunkSize : CANDIDATE_CHUNK_SIZES) {
+            double throughput = measureDecryptThroughput(fastest, ciphertext, chunkSize, output);
+            if (throughput > bestChunkThroughput) {
+                bestChunkThroughput = throughput;
+                bestChunkSize = chunkSize;
+            }
+        }
+
+        synchronized (this) {
+            // An override set while calibrating wins
+            if (!SOURCE_OVERRIDE.equals(source)) {
+                selectedProvider = fastest;
+                source = SOURCE_BENCHMARK;
+            }
+            recommendedChunkSize = bestChunkSize;
+        }
+        prefs.edit()
+            .putString(PREF_FINGERPRINT, Build.FINGERPRINT)
+            .putString(PREF_PROVIDER, fastest.getName())
+            .putInt(PREF_CHUNK_SIZE, bestChunkSize)
+            .apply();
+
+        Log.d(TAG, String.format("✅ Selected cipher provider %s (%.1f MB/s, chunk %d) in %d ms",
+            fastest.getName(), fastestThroughput, bestChunkSize, (System.nanoTime() - startTime) / 1000000));
+    }
+
+    private List<Provider> candidateProviders() {
+        List<Provider> candidates = new ArrayList<>();
+        for (Provider provider : Security.getProviders()) {
+            try {
+                Cipher.getInstance(transformation, provider);
+                candidates.add(provider);
+            } catch (Exception e) {
+                // Provider does not implement this transformation
+            }
+        }
+        return candidates;
+    }
+
+    private boolean passesKnownAnswerTest(Provider provider) throws Exception {
+        Cipher cipher = Cipher.getInstance(transformation, provider);
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KAT_KEY, "AES"), new IvParameterSpec(KAT_IV));
+        byte[] encrypted = cipher.doFinal(KAT_PLAINTEXT);
+        // PKCS5 appends one full padding block after the NIST ciphertext
+        if (encrypted.length != KAT_CIPHERTEXT.length + 16
+                || !Arrays.equals(Arrays.copyOf(encrypted, KAT_CIPHERTEXT.length), KAT_CIPHERTEXT)) {
+            return false;
+        }
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(KAT_KEY, "AES"), new IvParameterSpec(KAT_IV));
+        return Arrays.equals(cipher.doFinal(encrypted), KAT_PLAINTEXT);
+    }
+
+    private byte[] encrypt(Provider provider, byte[] plaintext) throws Exception {
+        Cipher cipher = Cipher.getInstance(transformation, provider);
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KAT_KEY, "AES"), new IvParameterSpec(KAT_IV));
+        return cipher.doFinal(plaintext);
+    }
+
+    // Best-of-N decrypt throughput in MB/s, decrypting in chunkSize updates like the streaming paths
+    private double measureDecryptThroughput(Provider provider, byte[] ciphertext, int chunkSize, byte[] output) throws Exception {
+        Cipher cipher = Cipher.getInstance(transformation, provider);
+        SecretKeySpec keySpec = new SecretKeySpec(KAT_KEY, "AES");
+        IvParameterSpec ivSpec = new IvParameterSpec(KAT_IV);
+        long bestNanos = Long.MAX_VALUE;
+
+        for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+            long start = System.nanoTime();
+            cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
+            int offset = 0;
+            while (ciphertext.length - offset > chunkSize) {
+                cipher.update(ciphertext, offset, chunkSize, output);
+                offset += chunkSize;
+            }
+            cipher.doFinal(ciphertext, offset, ciphertext.length - offset, output);
+            long elapsed = System.nanoTime() - start;
+            if (run >= WARMUP_RUNS) {
+                bestNanos = Math.min(bestNanos, elapsed);
+            }
+        }
+        return (ciphertext.length / (1024.0 * 1024.0)) / (Math.max(1, bestNanos) / 1e9);
+    }
+
+    private boolean applyProvider(String providerName, String newSource) {
+        if (providerName == null) {
+            return false;
+        }
+        Provider provider = Security.getProvider(providerName);
+        if (provider == null) {
+            Log.w(TAG, "⚠️ Cipher provider not installed: " + providerName);
+            return false;
+        }
+        try {
+            Cipher.getInstance(transformation, provider);
+        } catch (Exception e) {
+            Log.w(TAG, "⚠️ Provider " + providerName + " does not support " + transformation);
+            return false;
+        }
+        selectedProvider = provider;
+        source = newSource;
+        Log.d(TAG, "🔐 Using cipher provider " + providerName + " (" + newSource + ")");
+        return true;
+    }
+
+    private static byte[] hex(String value) {
+        byte[] bytes = new byte[value.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(value.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
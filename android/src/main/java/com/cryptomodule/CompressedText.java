@@ -0,0 +1,115 @@
+package com.cryptomodule;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
+
+// ✅ Compress-then-encrypt framing for text payloads.
+// Compressed text is prefixed with HEADER inside the ciphertext. 0xFF never occurs in valid UTF-8,
+// so plain (legacy) text payloads can never be mistaken for compressed ones.
+final class CompressedText {
+    static final byte[] HEADER = { (byte) 0xFF, 'C', 'Z', 0x01 };
+    private static final int INFLATE_READ_SIZE = 64 * 1024;
+    // At its peak inflated text is held as the output buffer (up to 2x its size while growing)
+    // plus the decoded String (2 bytes per char), so budget is reserved at 4x the inflated size
+    private static final int INFLATED_BUDGET_FACTOR = 4;
+
+    private CompressedText() {
+    }
+
+    // Fused pipeline: Deflater -> Cipher -> output, no intermediate compressed copy.
+    // The cipher must already be initialized for encryption.
+    static byte[] encrypt(byte[] textData, Cipher cipher, boolean compress) throws IOException {
+        ByteArrayOutputStream encryptedOutput = new ByteArrayOutputStream(
+            compress ? textData.length / 4 + 64 : textData.length + 16);
+        CipherOutputStream cipherOutput = new CipherOutputStream(encryptedOutput, cipher);
+
+        if (compress) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                cipherOutput.write(HEADER);
+                DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(cipherOutput, deflater, 64 * 1024);
+                deflaterOutput.write(textData);
+                deflaterOutput.finish();
+            } finally {
+                deflater.end();
+            }
+        } else {
+            cipherOutput.write(textData);
+        }
+
+        // Closing the cipher stream runs doFinal (adds PKCS7 padding)
+        cipherOutput.close();
+        return encryptedOutput.toByteArray();
+    }
+
+    static boolean hasHeader(byte[] data) {
+        if (data == null || data.length < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (data[i] != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decrypted payload -> text; inflates payloads written by encrypt(..., true), legacy payloads
+     * pass through. Inflation grows the caller's reservation (null = unbudgeted) as output
+     * accumulates and fails once the text would exceed maxInflatedBytes, so a small crafted
+     * payload cannot expand past the memory budget. Growth never waits: the caller already holds
+     * budget, so a busy budget fails the decode instead of blocking other jobs.
+     */
+    static String decode(byte[] decrypted, BufferPool bufferPool, MemoryBudget.Reservation reservation, long maxInflatedBytes) throws IOException {
+        if (!hasHeader(decrypted)) {
+            return new String(decrypted, StandardCharsets.UTF_8);
+        }
+
+        int initialCapacity = (int) Math.min(decrypted.length * 4L, maxInflatedBytes);
+        long reservedBytes = BufferPool.capacityFor(INFLATE_READ_SIZE) + (long) initialCapacity * 2;
+        grow(reservation, reservedBytes);
+
+        InflaterInputStream inflaterInput = new InflaterInputStream(
+            new ByteArrayInputStream(decrypted, HEADER.length, decrypted.length - HEADER.length));
+        ByteArrayOutputStream inflatedOutput = new ByteArrayOutputStream(initialCapacity);
+        byte[] buffer = bufferPool.acquire(INFLATE_READ_SIZE);
+        int bytesRead;
+        try {
+            while ((bytesRead = inflaterInput.read(buffer, 0, INFLATE_READ_SIZE)) != -1) {
+                long inflatedSize = (long) inflatedOutput.size() + bytesRead;
+                if (inflatedSize > maxInflatedBytes) {
+                    throw new IOException("Compressed text inflates beyond " + maxInflatedBytes + " bytes");
+                }
+                long neededBytes = BufferPool.capacityFor(INFLATE_READ_SIZE) + inflatedSize * INFLATED_BUDGET_FACTOR;
+                if (neededBytes > reservedBytes) {
+                    // Grow geometrically so a large payload takes O(log n) reservations,
+                    // but never past what the largest allowed text needs
+                    long ceiling = BufferPool.capacityFor(INFLATE_READ_SIZE) + maxInflatedBytes * INFLATED_BUDGET_FACTOR;
+                    long step = Math.min(Math.max(neededBytes - reservedBytes, reservedBytes), ceiling - reservedBytes);
+                    grow(reservation, step);
+                    reservedBytes += step;
+                }
+                inflatedOutput.write(buffer, 0, bytesRead);
+            }
+        } finally {
+            bufferPool.release(buffer);
+            inflaterInput.close();
+        }
+        // Decodes straight from the output buffer, no extra byte[] copy
+        return inflatedOutput.toString(StandardCharsets.UTF_8.name());
+    }
+
+    private static void grow(MemoryBudget.Reservation reservation, long bytes) throws IOException {
+        if (reservation != null && !reservation.tryGrow(bytes)) {
+            throw new IOException("Memory budget busy, cannot hold " + bytes + " more bytes of inflated text");
+        }
+    }
+}
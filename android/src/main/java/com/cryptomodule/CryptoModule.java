@@ -1,4 +1,5 @@
 package com.cryptomodule;
+import android.content.pm.ApplicationInfo;
 import android.util.Log;
 import android.util.Base64;
 import com.facebook.react.bridge.ReactApplicationContext;
@@ -9,20 +10,21 @@ import com.facebook.react.bridge.Callback;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.crypto.Cipher;
-import javax.crypto.CipherOutputStream;
 import javax.crypto.spec.SecretKeySpec;
 import javax.crypto.spec.IvParameterSpec;
 import com.facebook.react.bridge.WritableMap;
@@ -33,14 +35,37 @@ import fi.iki.elonen.NanoHTTPD;
 public class CryptoModule extends ReactContextBaseJavaModule {
     private static final String TAG = "CryptoModule";
     private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final int MAX_BASE64_RANGE = 1024 * 1024; // Larger ranges must go to a file
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 1024; // Skip compression below 1KB
+    private static final int JOB_THREADS = 4;
+    private static final int MAX_QUEUED_JOBS = 32;
     private StreamingHTTPServer httpServer;
+    private final MemoryBudget memoryBudget;
+    private final BufferPool bufferPool;
+    private final CipherProviderSelector cipherProviders;
+    private final RangeDecryptor rangeDecryptor;
+    private final ProgressiveHttpDecryptor progressiveHttpDecryptor;
+    private final ExecutorService jobExecutor = newJobExecutor();
     
     public CryptoModule(ReactApplicationContext reactContext) {
         super(reactContext);
         
+        // Shared byte budget for in-memory buffers across all concurrent jobs
+        memoryBudget = MemoryBudget.forContext(reactContext);
+        
+        // Reusable I/O buffers for all streaming paths; leak tracking only in debuggable apps
+        boolean debuggable = (reactContext.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        bufferPool = new BufferPool(memoryBudget.getInMemoryThreshold(), debuggable);
+        
+        // Fastest correct AES-CBC provider (cached per OS build, calibrated in background otherwise)
+        cipherProviders = new CipherProviderSelector(reactContext, TRANSFORMATION);
+        cipherProviders.initialize();
+        rangeDecryptor = new RangeDecryptor(cipherProviders, bufferPool, memoryBudget);
+        progressiveHttpDecryptor = new ProgressiveHttpDecryptor(cipherProviders, bufferPool, memoryBudget);
+        
         // Start HTTP server on initialization
         try {
-            httpServer = new StreamingHTTPServer(0); // 0 = random available port
+            httpServer = new StreamingHTTPServer(0, reactContext.getCacheDir(), memoryBudget, bufferPool, cipherProviders); // 0 = random available port
             httpServer.start(NanoHTTPD.SOCKET_READ_TIMEOUT, false);
             Log.d(TAG, "🌐 NanoHTTPD server started on port: " + httpServer.getListeningPort());
         } catch (IOException e) {
@@ -55,136 +80,29 @@ public class CryptoModule extends ReactContextBaseJavaModule {
             httpServer.stop();
             Log.d(TAG, "🛑 HTTP server stopped");
         }
+        jobExecutor.shutdown();
+        bufferPool.reportLeaks();
+        bufferPool.clear();
     }
     
-    // ✅ Inner class: HTTP server for streaming decrypted content
-    private class StreamingHTTPServer extends NanoHTTPD {
-        private Map<String, StreamConfig> activeStreams = new HashMap<>();
-        
-        public StreamingHTTPServer(int port) {
-            super(port);
-        }
-        
-        public void registerStream(String streamId, StreamConfig config) {
-            activeStreams.put(streamId, config);
-            Log.d(TAG, "✅ Registered stream: " + streamId);
-        }
-        
-        @Override
-        public Response serve(IHTTPSession session) {
-            String uri = session.getUri();
-            String streamId = uri.substring(1); // Remove leading "/"
-            
-            Log.d(TAG, "🎬 HTTP request received for stream: " + streamId);
-            
-            StreamConfig config = activeStreams.get(streamId);
-            if (config == null) {
-                Log.e(TAG, "❌ Stream not found: " + streamId);
-                return newFixedLengthResponse(Response.Status.NOT_FOUND, MIME_PLAINTEXT, "Stream not found");
-            }
-            
-            try {
-                // Download and decrypt the video
-                byte[] decryptedData = downloadAndDecrypt(config);
-                
-                if (decryptedData == null) {
-                    return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, MIME_PLAINTEXT, "Decryption failed");
-                }
-                
-                Log.d(TAG, "📤 Serving " + decryptedData.length + " bytes to video player");
-                
-                Response response = newFixedLengthResponse(Response.Status.OK, "video/mp4", 
-                    new java.io.ByteArrayInputStream(decryptedData), decryptedData.length);
-                response.addHeader("Accept-Ranges", "bytes");
-                response.addHeader("Access-Control-Allow-Origin", "*");
-                
-                return response;
-                
-            } catch (Exception e) {
-                Log.e(TAG, "❌ Error serving stream: " + e.getMessage());
-                e.printStackTrace();
-                return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, MIME_PLAINTEXT, 
-                    "Error: " + e.getMessage());
-            }
-        }
-        
-        private byte[] downloadAndDecrypt(StreamConfig config) {
-            try {
-                Log.d(TAG, "📥 Downloading from: " + config.inputUri);
-                
-                // Setup HTTP connection
-                URL url = new URL(config.inputUri);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                if (config.token != null && !config.token.isEmpty()) {
-                    connection.setRequestProperty("Authorization", "Bearer " + config.token);
-                }
-                
-                InputStream inputStream = connection.getInputStream();
-                
-                // Setup decryption
-                byte[] keyBytes = Base64.decode(config.keyBase64, Base64.DEFAULT);
-                byte[] ivBytes = Base64.decode(config.ivBase64, Base64.DEFAULT);
-                
-                SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
-                IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
-                Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-                cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-                
-                // Read and decrypt in chunks
-                ByteArrayOutputStream decryptedOutput = new ByteArrayOutputStream();
-                byte[] buffer = new byte[16 * 1024]; // 16KB chunks
-                int bytesRead;
-                long totalDownloaded = 0;
-                
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    totalDownloaded += bytesRead;
-                    
-                    // Decrypt chunk
-                    byte[] chunkToDecrypt = Arrays.copyOf(buffer, bytesRead);
-                    byte[] decryptedChunk = cipher.update(chunkToDecrypt);
-                    
-                    if (decryptedChunk != null && decryptedChunk.length > 0) {
-                        decryptedOutput.write(decryptedChunk);
-                    }
-                    
-                    if (totalDownloaded % (1024 * 1024) == 0) { // Log every 1MB
-                        Log.d(TAG, "📥 Downloaded and decrypted: " + (totalDownloaded / 1024) + " KB");
-                    }
-                }
-                
-                // Finalize decryption (handle padding)
-                byte[] finalBytes = cipher.doFinal();
-                if (finalBytes != null && finalBytes.length > 0) {
-                    decryptedOutput.write(finalBytes);
-                }
-                
-                inputStream.close();
-                connection.disconnect();
-                
-                Log.d(TAG, "✅ Total decrypted: " + decryptedOutput.size() + " bytes");
-                
-                return decryptedOutput.toByteArray();
-                
-            } catch (Exception e) {
-                Log.e(TAG, "❌ Download and decrypt failed: " + e.getMessage());
-                e.printStackTrace();
-                return null;
-            }
-        }
+    // ✅ Bounded worker pool for file/stream jobs. @ReactMethods run on the native-modules thread
+    // shared by every module, so anything that may wait for memory budget or the network runs here
+    private static ExecutorService newJobExecutor() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(JOB_THREADS, JOB_THREADS, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(MAX_QUEUED_JOBS),
+            runnable -> new Thread(runnable, "CryptoModule-job-" + threadCount.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
     
-    // ✅ Stream configuration holder
-    private static class StreamConfig {
-        String inputUri;
-        String keyBase64;
-        String ivBase64;
-        String token;
-        
-        StreamConfig(String inputUri, String keyBase64, String ivBase64, String token) {
-            this.inputUri = inputUri;
-            this.keyBase64 = keyBase64;
-            this.ivBase64 = ivBase64;
-            this.token = token;
+    // Queues the job; the job itself resolves or rejects the promise from the worker thread
+    private void runJob(Promise promise, String errorCode, Runnable job) {
+        try {
+            jobExecutor.execute(job);
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "❌ Job queue full (" + MAX_QUEUED_JOBS + " waiting), rejecting");
+            promise.reject(errorCode, "Too many queued jobs, try again later");
         }
     }
     
@@ -222,7 +140,7 @@ public class CryptoModule extends ReactContextBaseJavaModule {
             Log.d(TAG, "🌐 Stream will be available at: " + localURL);
             
             // Register stream configuration
-            StreamConfig config = new StreamConfig(inputUri, keyBase64, ivBase64, token);
+            StreamingHTTPServer.StreamConfig config = new StreamingHTTPServer.StreamConfig(inputUri, keyBase64, ivBase64, token);
             httpServer.registerStream(streamId, config);
             
             // Resolve with local HTTP URL
@@ -240,7 +158,12 @@ public class CryptoModule extends ReactContextBaseJavaModule {
     }
     
     @ReactMethod
-    public void decryptFile(String inputUri, String outputUri, String keyBase64, String ivBase64, int chunkSize, Promise promise) {
+    public void decryptFile(final String inputUri, final String outputUri, final String keyBase64, final String ivBase64, final int chunkSize, final Promise promise) {
+        runJob(promise, "DECRYPT_FAILED", () -> decryptFileJob(inputUri, outputUri, keyBase64, ivBase64, chunkSize, promise));
+    }
+    
+    private void decryptFileJob(String inputUri, String outputUri, String keyBase64, String ivBase64, int chunkSize, Promise promise) {
+        MemoryBudget.Reservation reservation = null;
         try {
             Log.d(TAG, "=== NATIVE MODULE DEBUG ===");
             Log.d(TAG, "inputUri: " + inputUri);
@@ -324,39 +247,51 @@ public class CryptoModule extends ReactContextBaseJavaModule {
                 return;
             }
             
-            // Read input file
-            FileInputStream fis = new FileInputStream(inputFile);
-            byte[] inputData = new byte[(int) inputFile.length()];
-            fis.read(inputData);
-            fis.close();
-            
-            if (inputData.length == 0) {
-                Log.e(TAG, "❌ Input file is empty");
-                promise.reject("DECRYPT_FAILED", "Input file is empty");
-                return;
+            // ✅ Large inputs would not fit the memory budget - switch to streaming decryption
+            long inputSize = inputFile.length();
+            if (memoryBudget.shouldStream(inputSize)) {
+                Log.d(TAG, "📦 Input size " + inputSize + " exceeds in-memory threshold " 
+                    + memoryBudget.getInMemoryThreshold() + ", switching to streaming decryption");
+                decryptLocalFileStreaming(inputFile, outputFile, keyBytes, ivBytes, (chunkSize / 16) * 16);
+            } else {
+                // Input and output buffers are both held in memory
+                reservation = memoryBudget.reserve(inputSize * 2, MemoryBudget.DEFAULT_ACQUIRE_TIMEOUT_MS);
+                
+                // Read input file
+                FileInputStream fis = new FileInputStream(inputFile);
+                byte[] inputData = new byte[(int) inputFile.length()];
+                fis.read(inputData);
+                fis.close();
+                
+                if (inputData.length == 0) {
+                    Log.e(TAG, "❌ Input file is empty");
+                    promise.reject("DECRYPT_FAILED", "Input file is empty");
+                    return;
+                }
+                
+                Log.d(TAG, "✅ Input file read successfully, size: " + inputData.length + " bytes");
+                
+                // Perform AES-256-CBC decryption
+                SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
+                IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
+                
+                Cipher cipher = cipherProviders.newCipher();
+                cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
+                
+                Log.d(TAG, "Starting decryption...");
+                Log.d(TAG, "Input data length: " + inputData.length);
+                
+                byte[] decryptedData = cipher.doFinal(inputData);
+                
+                Log.d(TAG, "✅ Decryption successful, output size: " + decryptedData.length + " bytes");
+                
+                // Write output file
+                FileOutputStream fos = new FileOutputStream(outputFile);
+                fos.write(decryptedData);
+                fos.close();
+                
             }
             
-            Log.d(TAG, "✅ Input file read successfully, size: " + inputData.length + " bytes");
-            
-            // Perform AES-256-CBC decryption
-            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
-            IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
-            
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-            
-            Log.d(TAG, "Starting decryption...");
-            Log.d(TAG, "Input data length: " + inputData.length);
-            
-            byte[] decryptedData = cipher.doFinal(inputData);
-            
-            Log.d(TAG, "✅ Decryption successful, output size: " + decryptedData.length + " bytes");
-            
-            // Write output file
-            FileOutputStream fos = new FileOutputStream(outputFile);
-            fos.write(decryptedData);
-            fos.close();
-            
             Log.d(TAG, "✅ File written successfully to: " + outputPath);
             
             // Verify the file was written
@@ -371,13 +306,31 @@ public class CryptoModule extends ReactContextBaseJavaModule {
         } catch (Exception e) {
             Log.e(TAG, "❌ Decryption failed: " + e.getMessage(), e);
             promise.reject("DECRYPT_FAILED", "Decryption failed: " + e.getMessage());
+        } finally {
+            if (reservation != null) {
+                reservation.close();
+            }
         }
     }
     @ReactMethod
-    public void encryptDataStreaming(String inputDataBase64, String keyBase64, String ivBase64, int chunkSize, Promise promise) {
+    public void encryptDataStreaming(final String inputDataBase64, final String keyBase64, final String ivBase64, final int chunkSize, final Promise promise) {
+        runJob(promise, "ENCRYPT_FAILED", () -> encryptDataStreamingJob(inputDataBase64, keyBase64, ivBase64, chunkSize, promise));
+    }
+    
+    private void encryptDataStreamingJob(String inputDataBase64, String keyBase64, String ivBase64, int chunkSize, Promise promise) {
+        MemoryBudget.Reservation reservation = null;
         try {
             Log.d(TAG, "=== STREAMING ENCRYPTION START ===");
             
+            if (chunkSize <= 0) {
+                chunkSize = 1024 * 1024; // Default 1MB to match JavaScript
+            }
+            
+            // Decoded input plus Base64 output chunks are all held in memory (~2x the Base64 input),
+            // plus the pooled chunk output buffer
+            reservation = memoryBudget.reserve(inputDataBase64.length() * 2L + BufferPool.capacityFor(chunkSize + 16),
+                MemoryBudget.DEFAULT_ACQUIRE_TIMEOUT_MS);
+            
             // Convert base64 inputs
             byte[] inputData = Base64.decode(inputDataBase64, Base64.DEFAULT);
             byte[] keyBytes = Base64.decode(keyBase64, Base64.DEFAULT);
@@ -393,55 +346,56 @@ public class CryptoModule extends ReactContextBaseJavaModule {
                 return;
             }
             
-            if (chunkSize <= 0) {
-                chunkSize = 1024 * 1024; // Default 1MB to match JavaScript
-            }
-            
             final int AES_BLOCK_SIZE = 16;
             SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "AES");
             IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
             
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            Cipher cipher = cipherProviders.newCipher();
             cipher.init(Cipher.ENCRYPT_MODE, secretKey, ivSpec);
             
             List<String> encryptedChunks = new ArrayList<>();
             int totalLength = inputData.length;
             int totalProcessed = 0;
             
-            for (int start = 0; start < totalLength; start += chunkSize) {
-                boolean isLastChunk = (start + chunkSize >= totalLength);
-                int currentChunkSize = Math.min(chunkSize, totalLength - start);
-                
-                byte[] chunk = Arrays.copyOfRange(inputData, start, start + currentChunkSize);
-                
-                Log.d(TAG, String.format("Processing chunk %d, size: %d, isLast: %b", 
-                      (start / chunkSize + 1), chunk.length, isLastChunk));
-                
-                // For non-final chunks, ensure block alignment
-                if (!isLastChunk) {
-                    int alignedSize = (chunk.length / AES_BLOCK_SIZE) * AES_BLOCK_SIZE;
-                    if (alignedSize < chunk.length) {
-                        chunk = Arrays.copyOf(chunk, alignedSize);
-                        Log.d(TAG, String.format("Aligned chunk to: %d bytes", chunk.length));
+            // Chunks are encrypted in place from inputData into one pooled output buffer
+            byte[] chunkOutput = bufferPool.acquire(chunkSize + AES_BLOCK_SIZE);
+            
+            try {
+                for (int start = 0; start < totalLength; start += chunkSize) {
+                    boolean isLastChunk = (start + chunkSize >= totalLength);
+                    int chunkLength = Math.min(chunkSize, totalLength - start);
+                    
+                    Log.d(TAG, String.format("Processing chunk %d, size: %d, isLast: %b", 
+                          (start / chunkSize + 1), chunkLength, isLastChunk));
+                    
+                    // For non-final chunks, ensure block alignment
+                    if (!isLastChunk) {
+                        int alignedSize = (chunkLength / AES_BLOCK_SIZE) * AES_BLOCK_SIZE;
+                        if (alignedSize < chunkLength) {
+                            chunkLength = alignedSize;
+                            Log.d(TAG, String.format("Aligned chunk to: %d bytes", chunkLength));
+                        }
                     }
+                    
+                    int outputLength;
+                    if (isLastChunk) {
+                        // Final chunk
+                        outputLength = cipher.doFinal(inputData, start, chunkLength, chunkOutput);
+                    } else {
+                        // Regular chunk
+                        outputLength = cipher.update(inputData, start, chunkLength, chunkOutput);
+                    }
+                    
+                    if (outputLength > 0) {
+                        String chunkBase64 = Base64.encodeToString(chunkOutput, 0, outputLength, Base64.DEFAULT);
+                        encryptedChunks.add(chunkBase64);
+                        Log.d(TAG, String.format("Chunk encrypted output size: %d", outputLength));
+                    }
+                    
+                    totalProcessed += chunkLength;
                 }
-                
-                byte[] chunkOutput;
-                if (isLastChunk) {
-                    // Final chunk
-                    chunkOutput = cipher.doFinal(chunk);
-                } else {
-                    // Regular chunk
-                    chunkOutput = cipher.update(chunk);
-                }
-                
-                if (chunkOutput != null && chunkOutput.length > 0) {
-                    String chunkBase64 = Base64.encodeToString(chunkOutput, Base64.DEFAULT);
-                    encryptedChunks.add(chunkBase64);
-                    Log.d(TAG, String.format("Chunk encrypted output size: %d", chunkOutput.length));
-                }
-                
-                totalProcessed += chunk.length;
+            } finally {
+                bufferPool.release(chunkOutput);
             }
             
             Log.d(TAG, "✅ Streaming encryption completed");
@@ -462,6 +416,10 @@ public class CryptoModule extends ReactContextBaseJavaModule {
         } catch (Exception e) {
             Log.e(TAG, "Streaming encryption failed", e);
             promise.reject("ENCRYPT_FAILED", "Streaming encryption failed: " + e.getMessage());
+        } finally {
+            if (reservation != null) {
+                reservation.close();
+            }
         }
     }
 
@@ -504,7 +462,7 @@ public class CryptoModule extends ReactContextBaseJavaModule {
             SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "AES");
             IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
             
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            Cipher cipher = cipherProviders.newCipher();
             cipher.init(Cipher.ENCRYPT_MODE, secretKey, ivSpec);
             
             byte[] encryptedBytes = cipher.doFinal(textData);
@@ -524,8 +482,73 @@ public class CryptoModule extends ReactContextBaseJavaModule {
         }
     }
 
+    // ✅ Compress-then-encrypt for large text payloads (JSON etc.)
+    // Text at or above the threshold is streamed through Deflater straight into the cipher and
+    // prefixed with CompressedText.HEADER; decryptTextContent detects the header and inflates.
+    @ReactMethod
+    public void encryptTextContentCompressed(String textContent, String keyBase64, String ivBase64, int compressionThreshold, Promise promise) {
+        try {
+            Log.d(TAG, "=== COMPRESSED TEXT ENCRYPTION START ===");
+            Log.d(TAG, "compressionThreshold: " + compressionThreshold);
+            
+            if (textContent == null || textContent.isEmpty()) {
+                promise.reject("ENCRYPT_FAILED", "Invalid text content");
+                return;
+            }
+            
+            // Set default threshold if not provided
+            if (compressionThreshold <= 0) {
+                compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+            }
+            
+            // Convert base64 inputs
+            byte[] keyBytes = Base64.decode(keyBase64, Base64.DEFAULT);
+            byte[] ivBytes = Base64.decode(ivBase64, Base64.DEFAULT);
+            
+            if (keyBytes.length != 32) {
+                promise.reject("ENCRYPT_FAILED", "Invalid key length");
+                return;
+            }
+            
+            if (ivBytes.length != 16) {
+                promise.reject("ENCRYPT_FAILED", "Invalid IV length");
+                return;
+            }
+            
+            byte[] textData = textContent.getBytes(StandardCharsets.UTF_8);
+            boolean compress = textData.length >= compressionThreshold;
+            
+            Log.d(TAG, "Text data length: " + textData.length + ", compress: " + compress);
+            
+            SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "AES");
+            IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
+            
+            Cipher cipher = cipherProviders.newCipher();
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, ivSpec);
+            
+            // ✅ Fused pipeline: Deflater -> Cipher -> output, no intermediate compressed copy
+            byte[] encryptedBytes = CompressedText.encrypt(textData, cipher, compress);
+            String encryptedBase64 = Base64.encodeToString(encryptedBytes, Base64.DEFAULT);
+            
+            Log.d(TAG, "✅ Compressed text encryption successful");
+            Log.d(TAG, "Original size: " + textData.length);
+            Log.d(TAG, "Encrypted size: " + encryptedBytes.length);
+            
+            promise.resolve(encryptedBase64);
+            
+        } catch (Exception e) {
+            Log.e(TAG, "Compressed text encryption failed", e);
+            promise.reject("ENCRYPT_FAILED", "Compressed text encryption failed: " + e.getMessage());
+        }
+    }
+
     @ReactMethod
-    public void decryptTextContent(String encryptedContentBase64, String keyBase64, String ivBase64, int chunkSize, Promise promise) {
+    public void decryptTextContent(final String encryptedContentBase64, final String keyBase64, final String ivBase64, final int chunkSize, final Promise promise) {
+        runJob(promise, "DECRYPT_FAILED", () -> decryptTextContentJob(encryptedContentBase64, keyBase64, ivBase64, chunkSize, promise));
+    }
+    
+    private void decryptTextContentJob(String encryptedContentBase64, String keyBase64, String ivBase64, int chunkSize, Promise promise) {
+        MemoryBudget.Reservation reservation = null;
         try {
             Log.d(TAG, "=== TEXT DECRYPTION START ===");
             Log.d(TAG, "chunkSize: " + chunkSize);
@@ -535,6 +558,10 @@ public class CryptoModule extends ReactContextBaseJavaModule {
                 return;
             }
             
+            // Decoded ciphertext, decrypted bytes and the resulting String (~3x the Base64 input);
+            // inflating a compressed payload grows this reservation as it goes
+            reservation = memoryBudget.reserve(encryptedContentBase64.length() * 3L, MemoryBudget.DEFAULT_ACQUIRE_TIMEOUT_MS);
+            
             // Set default chunk size if not provided
             if (chunkSize <= 0) {
                 chunkSize = 1024 * 1024; // Default 1MB
@@ -558,11 +585,17 @@ public class CryptoModule extends ReactContextBaseJavaModule {
             SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "AES");
             IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
             
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            Cipher cipher = cipherProviders.newCipher();
             cipher.init(Cipher.DECRYPT_MODE, secretKey, ivSpec);
             
             byte[] decryptedBytes = cipher.doFinal(encryptedData);
-            String decryptedString = new String(decryptedBytes, StandardCharsets.UTF_8);
+            
+            // ✅ Transparently inflate payloads produced by encryptTextContentCompressed
+            if (CompressedText.hasHeader(decryptedBytes)) {
+                Log.d(TAG, "Compressed payload detected, inflating " + decryptedBytes.length + " bytes");
+            }
+            String decryptedString = CompressedText.decode(decryptedBytes, bufferPool, reservation,
+                memoryBudget.getInMemoryThreshold());
             
             Log.d(TAG, "✅ Text decryption successful");
             promise.resolve(decryptedString);
@@ -570,17 +603,29 @@ public class CryptoModule extends ReactContextBaseJavaModule {
         } catch (Exception e) {
             Log.e(TAG, "Text decryption failed", e);
             promise.reject("DECRYPT_FAILED", "Text decryption failed: " + e.getMessage());
+        } finally {
+            if (reservation != null) {
+                reservation.close();
+            }
         }
     }
     // ✅ COMPLETE: Progressive streaming decryption with immediate chunk processing (matching iOS)
     @ReactMethod
-    public void decryptFileWithStreaming(String inputUri, String outputUri, String keyBase64, String ivBase64, String token, int chunkSize, Promise promise) {
+    public void decryptFileWithStreaming(final String inputUri, final String outputUri, final String keyBase64, final String ivBase64, final String token, final int chunkSize, final Promise promise) {
+        runJob(promise, "DECRYPT_FAILED", () -> decryptFileWithStreamingJob(inputUri, outputUri, keyBase64, ivBase64, token, chunkSize, promise));
+    }
+    
+    private void decryptFileWithStreamingJob(String inputUri, String outputUri, String keyBase64, String ivBase64, String token, int chunkSize, Promise promise) {
         try {
             Log.d(TAG, "=== STREAMING DECRYPTION START ===");
             Log.d(TAG, "inputUri: " + inputUri);
             Log.d(TAG, "outputUri: " + outputUri);
             Log.d(TAG, "chunkSize: " + chunkSize);
             
+            // ✅ Negative chunk size selects adaptive mode (ADAPTIVE_CHUNK_SIZE in constants.ts)
+            boolean adaptive = chunkSize < 0;
+            AdaptiveChunkSizer sizer = adaptive ? AdaptiveChunkSizer.forDevice(memoryBudget) : null;
+            
             // Set default chunk size if not provided
             if (chunkSize <= 0) {
                 chunkSize = 1024 * 1024; // Default 1MB
@@ -622,75 +667,7 @@ public class CryptoModule extends ReactContextBaseJavaModule {
                     }
                 }
                 
-                // Create output stream immediately
-                FileOutputStream outputStream = new FileOutputStream(outputFile);
-                
-                // Create cipher for progressive decryption
-                SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
-                IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
-                Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-                cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-                
-                Log.d(TAG, "✅ Cipher created for AES-CBC streaming decryption");
-                
-                // Setup HTTP connection with progressive chunk reception
-                URL url = new URL(inputUri);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                if (token != null && !token.isEmpty()) {
-                    connection.setRequestProperty("Authorization", "Bearer " + token);
-                }
-                
-                InputStream inputStream = connection.getInputStream();
-                
-                // ✅ Allocate decryption buffer
-                int bufferSize = chunkSize + 16; // Extra space for AES blocks
-                byte[] inputBuffer = new byte[16 * 1024]; // 16KB network chunks (matches iOS)
-                byte[] outputBuffer = new byte[bufferSize];
-                
-                long totalDownloaded = 0;
-                int bytesRead;
-                
-                Log.d(TAG, "📡 Receiving and decrypting data progressively...");
-                
-                try {
-                    // ✅ Read network chunks and decrypt immediately as they arrive
-                    while ((bytesRead = inputStream.read(inputBuffer)) != -1) {
-                        totalDownloaded += bytesRead;
-                        
-                        Log.d(TAG, String.format("📥 Received chunk: %d bytes, total so far: %d bytes", 
-                            bytesRead, totalDownloaded));
-                        
-                        // ✅ Decrypt this chunk immediately using cipher.update()
-                        int outputLength = cipher.update(inputBuffer, 0, bytesRead, outputBuffer);
-                        
-                        if (outputLength > 0) {
-                            // ✅ Write decrypted data immediately
-                            outputStream.write(outputBuffer, 0, outputLength);
-                            
-                            // ✅ CRITICAL: Force flush so JavaScript FileSystem.getInfoAsync() 
-                            // sees the file growth immediately (matches iOS streamStatus)
-                            outputStream.flush();
-                            outputStream.getFD().sync(); // Force OS-level sync
-                            
-                            Log.d(TAG, String.format("✅ Decrypted and wrote: %d bytes (flushed)", outputLength));
-                        }
-                    }
-                    
-                    // ✅ Finalize decryption (handle padding removal)
-                    int finalLength = cipher.doFinal(outputBuffer, 0);
-                    if (finalLength > 0) {
-                        outputStream.write(outputBuffer, 0, finalLength);
-                        outputStream.flush();
-                        Log.d(TAG, String.format("✅ Final padding removal: %d bytes", finalLength));
-                    }
-                    
-                    Log.d(TAG, String.format("✅ Total downloaded and decrypted: %d bytes", totalDownloaded));
-                    
-                } finally {
-                    inputStream.close();
-                    outputStream.close();
-                    connection.disconnect();
-                }
+                progressiveHttpDecryptor.decrypt(inputUri, token, keyBytes, ivBytes, outputFile, sizer);
                 
                 Log.d(TAG, "✅ Progressive streaming completed successfully!");
                 
@@ -700,6 +677,9 @@ public class CryptoModule extends ReactContextBaseJavaModule {
                     result.putBoolean("success", true);
                     result.putString("localPath", outputUri);
                     result.putDouble("size", outputFile.length());
+                    if (sizer != null) {
+                        result.putMap("adaptive", adaptiveResult(sizer));
+                    }
                     promise.resolve(result);
                 } else {
                     promise.reject("DECRYPT_FAILED", "Output file verification failed");
@@ -729,27 +709,243 @@ public class CryptoModule extends ReactContextBaseJavaModule {
             new FileOutputStream(outputFile).close();
             Log.d(TAG, "✅ Created empty output file for streaming: " + outputPath);
             
-            // ✅ Streaming decryption with proper padding handling
-            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
-            IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
+            if (adaptive) {
+                Cipher cipher = cipherProviders.newCipher();
+                cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(keyBytes, "AES"), new IvParameterSpec(ivBytes));
+                FileInputStream fis = new FileInputStream(inputFile);
+                try {
+                    FileOutputStream fos = new FileOutputStream(outputFile);
+                    try {
+                        sizer.decryptStream(fis, fos, cipher, bufferPool, false);
+                    } finally {
+                        fos.close();
+                    }
+                } finally {
+                    fis.close();
+                }
+            } else {
+                decryptLocalFileStreaming(inputFile, outputFile, keyBytes, ivBytes, chunkSize);
+            }
             
-            FileInputStream fis = new FileInputStream(inputFile);
-            FileOutputStream fos = new FileOutputStream(outputFile);
+            Log.d(TAG, "✅ Streaming decryption completed successfully");
             
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
+            // Verify output file
+            if (outputFile.exists()) {
+                WritableMap result = Arguments.createMap();
+                result.putBoolean("success", true);
+                result.putString("localPath", outputUri);
+                result.putDouble("size", outputFile.length());
+                if (sizer != null) {
+                    result.putMap("adaptive", adaptiveResult(sizer));
+                }
+                promise.resolve(result);
+            } else {
+                promise.reject("DECRYPT_FAILED", "Output file verification failed");
+            }
             
-            byte[] inputBuffer = new byte[chunkSize];
-            byte[] outputBuffer = new byte[chunkSize + 16];
+        } catch (Exception e) {
+            Log.e(TAG, "Streaming decryption failed: " + e.getMessage(), e);
+            e.printStackTrace();
+            promise.reject("DECRYPT_FAILED", "Streaming decryption failed: " + e.getMessage());
+        }
+    }
+
+    // ✅ Current memory budget usage (in-flight buffers across all concurrent jobs)
+    @ReactMethod
+    public void getMemoryBudgetStatus(Promise promise) {
+        WritableMap result = Arguments.createMap();
+        result.putDouble("budgetBytes", memoryBudget.getBudgetBytes());
+        result.putDouble("inFlightBytes", memoryBudget.getInFlightBytes());
+        result.putDouble("peakBytes", memoryBudget.getPeakBytes());
+        result.putDouble("inMemoryThreshold", memoryBudget.getInMemoryThreshold());
+        result.putInt("activeJobs", memoryBudget.getActiveJobs());
+        result.putInt("waitingJobs", memoryBudget.getWaitingJobs());
+        promise.resolve(result);
+    }
+
+    // ✅ Buffer pool statistics (hit rate close to 1.0 means steady-state streaming is allocation-free)
+    @ReactMethod
+    public void getBufferPoolStats(Promise promise) {
+        WritableMap result = Arguments.createMap();
+        result.putDouble("hits", bufferPool.getHits());
+        result.putDouble("misses", bufferPool.getMisses());
+        result.putDouble("hitRate", bufferPool.getHitRate());
+        result.putDouble("discarded", bufferPool.getDiscarded());
+        result.putDouble("retainedBytes", bufferPool.getRetainedBytes());
+        result.putInt("outstanding", bufferPool.getOutstandingCount());
+        result.putBoolean("leakTracking", bufferPool.isTrackingLeaks());
+        promise.resolve(result);
+    }
+
+    // ✅ Which JCE provider the cipher paths use, and the last calibration results
+    @ReactMethod
+    public void getCipherProviderInfo(Promise promise) {
+        WritableMap result = Arguments.createMap();
+        result.putString("provider", cipherProviders.getProviderName());
+        result.putString("source", cipherProviders.getSource());
+        result.putInt("recommendedChunkSize", cipherProviders.getRecommendedChunkSize());
+        result.putBoolean("calibrating", cipherProviders.isCalibrating());
+        
+        WritableMap throughputs = Arguments.createMap();
+        for (Map.Entry<String, Double> entry : cipherProviders.getLastResults().entrySet()) {
+            throughputs.putDouble(entry.getKey(), entry.getValue());
+        }
+        result.putMap("throughputMBps", throughputs);
+        promise.resolve(result);
+    }
+    
+    // ✅ Force a specific provider (e.g. "AndroidOpenSSL"); null or "" clears the override and recalibrates
+    @ReactMethod
+    public void setCipherProvider(String providerName, Promise promise) {
+        if (cipherProviders.setOverride(providerName)) {
+            promise.resolve(cipherProviders.getProviderName());
+        } else {
+            promise.reject("PROVIDER_UNAVAILABLE", "Cipher provider not available: " + providerName);
+        }
+    }
+
+    // ✅ Partial decryption of a local file, see RangeDecryptor.
+    // Writes to outputUri when given, otherwise resolves the bytes as Base64 (up to 1MB).
+    @ReactMethod
+    public void decryptRange(final String inputUri, final String keyBase64, final String ivBase64, final double offset, final double length, final String outputUri, final Promise promise) {
+        runJob(promise, "DECRYPT_FAILED", () -> decryptRangeJob(inputUri, keyBase64, ivBase64, offset, length, outputUri, promise));
+    }
+    
+    private void decryptRangeJob(String inputUri, String keyBase64, String ivBase64, double offset, double length, String outputUri, Promise promise) {
+        try {
+            Log.d(TAG, "=== RANGE DECRYPTION START ===");
+            Log.d(TAG, "inputUri: " + inputUri + ", offset: " + (long) offset + ", length: " + (long) length);
             
-            long totalBytes = inputFile.length();
-            long processedBytes = 0;
+            long rangeOffset = (long) offset;
+            long rangeLength = (long) length;
+            boolean toFile = outputUri != null && !outputUri.isEmpty();
             
-            Log.d(TAG, "Starting streaming decryption, total size: " + totalBytes);
+            if (inputUri == null || inputUri.startsWith("http")) {
+                promise.reject("DECRYPT_FAILED", "decryptRange supports local files only");
+                return;
+            }
+            
+            if (rangeOffset < 0 || rangeLength < 0) {
+                promise.reject("DECRYPT_FAILED", "Invalid range: offset " + rangeOffset + ", length " + rangeLength);
+                return;
+            }
+            
+            if (!toFile && rangeLength > MAX_BASE64_RANGE) {
+                promise.reject("DECRYPT_FAILED", "Range too large for a Base64 result, pass an outputUri");
+                return;
+            }
+            
+            byte[] keyBytes = Base64.decode(keyBase64, Base64.DEFAULT);
+            byte[] ivBytes = Base64.decode(ivBase64, Base64.DEFAULT);
+            
+            if (keyBytes.length != 32) {
+                promise.reject("DECRYPT_FAILED", "Invalid key data length: " + keyBytes.length);
+                return;
+            }
+            
+            if (ivBytes.length != 16) {
+                promise.reject("DECRYPT_FAILED", "Invalid IV data length: " + ivBytes.length);
+                return;
+            }
+            
+            File inputFile = new File(convertFileUriToPath(inputUri));
+            if (!inputFile.exists()) {
+                promise.reject("DECRYPT_FAILED", "Input file does not exist: " + inputFile.getPath());
+                return;
+            }
+            
+            long fileSize = inputFile.length();
+            if (fileSize == 0 || fileSize % 16 != 0) {
+                promise.reject("DECRYPT_FAILED", "Invalid ciphertext size: " + fileSize);
+                return;
+            }
+            
+            OutputStream output;
+            File outputFile = null;
+            if (toFile) {
+                outputFile = new File(convertFileUriToPath(outputUri));
+                File outputDir = outputFile.getParentFile();
+                if (outputDir != null && !outputDir.exists() && !outputDir.mkdirs()) {
+                    promise.reject("DECRYPT_FAILED", "Failed to create output directory");
+                    return;
+                }
+                output = new FileOutputStream(outputFile);
+            } else {
+                output = new ByteArrayOutputStream((int) rangeLength);
+            }
+            
+            long written;
+            try {
+                written = rangeDecryptor.decrypt(inputFile, keyBytes, ivBytes, rangeOffset, rangeLength, output);
+            } finally {
+                output.close();
+            }
+            
+            Log.d(TAG, "✅ Range decryption completed: " + written + " bytes");
+            
+            WritableMap result = Arguments.createMap();
+            result.putBoolean("success", true);
+            result.putDouble("offset", rangeOffset);
+            result.putDouble("length", written);
+            if (toFile) {
+                result.putString("localPath", outputUri);
+            } else {
+                byte[] data = ((ByteArrayOutputStream) output).toByteArray();
+                result.putString("dataBase64", Base64.encodeToString(data, Base64.NO_WRAP));
+            }
+            promise.resolve(result);
+            
+        } catch (Exception e) {
+            Log.e(TAG, "Range decryption failed: " + e.getMessage(), e);
+            promise.reject("DECRYPT_FAILED", "Range decryption failed: " + e.getMessage());
+        }
+    }
+    
+    private WritableMap adaptiveResult(AdaptiveChunkSizer sizer) {
+        WritableMap adaptive = Arguments.createMap();
+        adaptive.putInt("readSize", sizer.getReadSize());
+        adaptive.putInt("batchSize", sizer.getBatchSize());
+        adaptive.putInt("retunes", sizer.getRetunes());
+        adaptive.putDouble("readMBps", sizer.getReadBytesPerSecond() / (1024 * 1024));
+        adaptive.putDouble("cipherMBps", sizer.getCipherBytesPerSecond() / (1024 * 1024));
+        adaptive.putDouble("writeMBps", sizer.getWriteBytesPerSecond() / (1024 * 1024));
+        return adaptive;
+    }
+
+    // ✅ Chunked local file decryption, only chunkSize bytes of ciphertext in memory at a time
+    private void decryptLocalFileStreaming(File inputFile, File outputFile, byte[] keyBytes, byte[] ivBytes, int chunkSize) throws Exception {
+        // ✅ Streaming decryption with proper padding handling
+        SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
+        IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
+        
+        Cipher cipher = cipherProviders.newCipher();
+        cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
+        
+        chunkSize = Math.max(16, chunkSize); // At least one AES block per read
+        long totalBytes = inputFile.length();
+        long processedBytes = 0;
+        
+        Log.d(TAG, "Starting streaming decryption, total size: " + totalBytes);
+        
+        // Files are opened before any budget or pooled buffer is taken, and everything after
+        // is inside the try, so a bad path or a budget timeout cannot leak either
+        FileInputStream fis = new FileInputStream(inputFile);
+        FileOutputStream fos = null;
+        MemoryBudget.Reservation reservation = null;
+        byte[] inputBuffer = null;
+        byte[] outputBuffer = null;
+        
+        try {
+            fos = new FileOutputStream(outputFile);
+            // Pooled buffers, reserved from the memory budget; a pooled chunk buffer already carries one spare AES block
+            reservation = memoryBudget.reserve(
+                BufferPool.capacityFor(chunkSize) + BufferPool.capacityFor(chunkSize + 16), MemoryBudget.DEFAULT_ACQUIRE_TIMEOUT_MS);
+            inputBuffer = bufferPool.acquire(chunkSize);
+            outputBuffer = bufferPool.acquire(chunkSize + 16);
             
             int bytesRead;
             
-            while ((bytesRead = fis.read(inputBuffer)) != -1) {
+            while ((bytesRead = fis.read(inputBuffer, 0, chunkSize)) != -1) {
                 processedBytes += bytesRead;
                 boolean isLastChunk = (processedBytes >= totalBytes);
                 
@@ -772,27 +968,16 @@ public class CryptoModule extends ReactContextBaseJavaModule {
                     fos.write(outputBuffer, 0, outputLength);
                 }
             }
-            
+        } finally {
+            bufferPool.release(inputBuffer);
+            bufferPool.release(outputBuffer);
+            if (reservation != null) {
+                reservation.close();
+            }
             fis.close();
-            fos.close();
-            
-            Log.d(TAG, "✅ Streaming decryption completed successfully");
-            
-            // Verify output file
-            if (outputFile.exists()) {
-                WritableMap result = Arguments.createMap();
-                result.putBoolean("success", true);
-                result.putString("localPath", outputUri);
-                result.putDouble("size", outputFile.length());
-                promise.resolve(result);
-            } else {
-                promise.reject("DECRYPT_FAILED", "Output file verification failed");
+            if (fos != null) {
+                fos.close();
             }
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Streaming decryption failed: " + e.getMessage(), e);
-            e.printStackTrace();
-            promise.reject("DECRYPT_FAILED", "Streaming decryption failed: " + e.getMessage());
         }
     }
 }
@@ -0,0 +1,180 @@
+package com.cryptomodule;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+// ✅ Module-wide byte budget for buffers held in memory by concurrent jobs.
+// Each job reserve()s before allocating, grows its Reservation as it needs more and closes it
+// when done; when the budget is exhausted reserve() blocks (backpressure) until other jobs
+// release or the timeout expires. Must not be called on the shared native-modules thread.
+final class MemoryBudget {
+    private static final String TAG = "CryptoModule";
+    private static final int DEFAULT_MEMORY_CLASS_MB = 64;
+    static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 30 * 1000;
+
+    private final long budgetBytes;
+    private final long inMemoryThreshold;
+    private long inFlightBytes = 0;
+    private long peakBytes = 0;
+    private int activeJobs = 0;
+    private int waitingJobs = 0;
+
+    MemoryBudget(long budgetBytes, long inMemoryThreshold) {
+        this.budgetBytes = budgetBytes;
+        this.inMemoryThreshold = inMemoryThreshold;
+    }
+
+    // Budget = 1/4 of the per-app heap, in-memory threshold = 1/16 of it
+    // (e.g. 64MB / 16MB on a 256MB memory class device, 16MB / 4MB on a 64MB one)
+    static MemoryBudget forContext(Context context) {
+        int memoryClassMb = DEFAULT_MEMORY_CLASS_MB;
+        ActivityManager activityManager = context != null
+            ? (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE)
+            : null;
+        if (activityManager != null) {
+            memoryClassMb = activityManager.getMemoryClass();
+        }
+        long heapBytes = memoryClassMb * 1024L * 1024L;
+        Log.d(TAG, "📊 Memory class: " + memoryClassMb + " MB, budget: " + (heapBytes / 4) + " bytes");
+        return new MemoryBudget(heapBytes / 4, heapBytes / 16);
+    }
+
+    long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    // Inputs larger than this should use streaming / spill-to-disk instead of in-memory buffers
+    long getInMemoryThreshold() {
+        return inMemoryThreshold;
+    }
+
+    boolean shouldStream(long sizeBytes) {
+        return sizeBytes < 0 || sizeBytes > inMemoryThreshold;
+    }
+
+    /**
+     * Reserves bytes for a new job, waiting up to timeoutMs for other jobs to release.
+     * Requests larger than the whole budget are clamped so they run alone instead of never running.
+     * Throws on timeout; close() the returned reservation when the job is done.
+     */
+    Reservation reserve(long bytes, long timeoutMs) throws IOException {
+        long granted = take(Math.min(bytes, budgetBytes), timeoutMs);
+        synchronized (this) {
+            activeJobs++;
+        }
+        return new Reservation(granted);
+    }
+
+    // Non-blocking variant: null when the bytes are not available right now
+    synchronized Reservation tryReserve(long bytes) {
+        long granted = Math.max(0, Math.min(bytes, budgetBytes));
+        if (inFlightBytes + granted > budgetBytes) {
+            return null;
+        }
+        commit(granted);
+        activeJobs++;
+        return new Reservation(granted);
+    }
+
+    private synchronized long take(long bytes, long timeoutMs) throws IOException {
+        long granted = Math.max(0, bytes);
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        if (inFlightBytes + granted > budgetBytes) {
+            Log.d(TAG, "⏳ Memory budget exhausted, waiting for " + granted + " bytes (in flight: " + inFlightBytes + ")");
+        }
+
+        waitingJobs++;
+        try {
+            while (inFlightBytes + granted > budgetBytes) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    Log.e(TAG, "❌ Timed out waiting for " + granted + " bytes of memory budget");
+                    throw new IOException("Timed out waiting for " + granted + " bytes of memory budget");
+                }
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for memory budget");
+        } finally {
+            waitingJobs--;
+        }
+
+        commit(granted);
+        return granted;
+    }
+
+    private synchronized void commit(long granted) {
+        inFlightBytes += granted;
+        peakBytes = Math.max(peakBytes, inFlightBytes);
+    }
+
+    private synchronized void give(long grantedBytes) {
+        inFlightBytes = Math.max(0, inFlightBytes - grantedBytes);
+        activeJobs = Math.max(0, activeJobs - 1);
+        notifyAll();
+    }
+
+    synchronized long getInFlightBytes() {
+        return inFlightBytes;
+    }
+
+    synchronized long getPeakBytes() {
+        return peakBytes;
+    }
+
+    synchronized int getActiveJobs() {
+        return activeJobs;
+    }
+
+    synchronized int getWaitingJobs() {
+        return waitingJobs;
+    }
+
+    // ✅ One job's share of the budget. It grows while the job runs (bigger batches, inflating
+    // text) and is released in one go by close(). Used by a single thread at a time.
+    final class Reservation implements Closeable {
+        private long bytes;
+        private boolean closed = false;
+
+        private Reservation(long bytes) {
+            this.bytes = bytes;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        // Blocking growth; clamped so one job alone can use the whole budget but never more
+        void grow(long more, long timeoutMs) throws IOException {
+            bytes += take(Math.min(more, budgetBytes - bytes), timeoutMs);
+        }
+
+        // Non-blocking growth, clamped like grow(); false when not available now. For optional work
+        // (e.g. a bigger batch) and for callers that already hold budget and must not wait for more
+        boolean tryGrow(long more) {
+            synchronized (MemoryBudget.this) {
+                long granted = Math.max(0, Math.min(more, budgetBytes - bytes));
+                if (inFlightBytes + granted > budgetBytes) {
+                    return false;
+                }
+                commit(granted);
+                bytes += granted;
+                return true;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                give(bytes);
+            }
+        }
+    }
+}
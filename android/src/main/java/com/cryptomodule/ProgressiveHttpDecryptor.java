@@ -0,0 +1,124 @@
+package com.cryptomodule;
+
+import android.util.Log;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+// ✅ HTTP branch of decryptFileWithStreaming: downloads an encrypted URL and decrypts it into a local
+// file as the bytes arrive (matches iOS NSURLSessionDataDelegate), so JS can watch the file grow.
+// Fixed mode reads 16KB network chunks and flushes + fsyncs after each one; adaptive mode lets an
+// AdaptiveChunkSizer tune read and batch sizes from measured throughput.
+final class ProgressiveHttpDecryptor {
+    private static final String TAG = "CryptoModule";
+    private static final int READ_SIZE = 16 * 1024; // 16KB network chunks (matches iOS)
+    private static final int AES_BLOCK_SIZE = 16;
+
+    private final CipherProviderSelector cipherProviders;
+    private final BufferPool bufferPool;
+    private final MemoryBudget memoryBudget;
+
+    ProgressiveHttpDecryptor(CipherProviderSelector cipherProviders, BufferPool bufferPool, MemoryBudget memoryBudget) {
+        this.cipherProviders = cipherProviders;
+        this.bufferPool = bufferPool;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Streams url into outputFile, decrypting on the fly; sizer == null selects the fixed 16KB loop.
+     * The output file is created before connecting so pollers see activity immediately.
+     * Returns the number of ciphertext bytes received.
+     */
+    long decrypt(String url, String token, byte[] keyBytes, byte[] ivBytes, File outputFile, AdaptiveChunkSizer sizer) throws Exception {
+        // Create output stream immediately
+        FileOutputStream outputStream = new FileOutputStream(outputFile);
+        HttpURLConnection connection = null;
+        try {
+            // Create cipher for progressive decryption
+            Cipher cipher = cipherProviders.newCipher();
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(keyBytes, "AES"), new IvParameterSpec(ivBytes));
+            Log.d(TAG, "✅ Cipher created for AES-CBC streaming decryption");
+
+            // Setup HTTP connection with progressive chunk reception
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            if (token != null && !token.isEmpty()) {
+                connection.setRequestProperty("Authorization", "Bearer " + token);
+            }
+
+            InputStream inputStream = connection.getInputStream();
+            try {
+                if (sizer != null) {
+                    // ✅ Adaptive: read size and decrypt/write/sync batch tuned from measured throughput
+                    return sizer.decryptStream(inputStream, outputStream, cipher, bufferPool, true);
+                }
+                return decryptFixed(inputStream, outputStream, cipher);
+            } finally {
+                inputStream.close();
+            }
+        } finally {
+            outputStream.close();
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private long decryptFixed(InputStream inputStream, FileOutputStream outputStream, Cipher cipher) throws Exception {
+        // ✅ Pooled decryption buffers, reserved from the memory budget
+        MemoryBudget.Reservation reservation = memoryBudget.reserve(
+            BufferPool.capacityFor(READ_SIZE) + BufferPool.capacityFor(READ_SIZE + AES_BLOCK_SIZE),
+            MemoryBudget.DEFAULT_ACQUIRE_TIMEOUT_MS);
+        byte[] inputBuffer = bufferPool.acquire(READ_SIZE);
+        byte[] outputBuffer = bufferPool.acquire(READ_SIZE + AES_BLOCK_SIZE); // Extra space for AES blocks
+
+        long totalDownloaded = 0;
+        int bytesRead;
+
+        Log.d(TAG, "📡 Receiving and decrypting data progressively...");
+
+        try {
+            // ✅ Read network chunks and decrypt immediately as they arrive
+            while ((bytesRead = inputStream.read(inputBuffer, 0, READ_SIZE)) != -1) {
+                totalDownloaded += bytesRead;
+
+                Log.d(TAG, String.format("📥 Received chunk: %d bytes, total so far: %d bytes",
+                    bytesRead, totalDownloaded));
+
+                // ✅ Decrypt this chunk immediately using cipher.update()
+                int outputLength = cipher.update(inputBuffer, 0, bytesRead, outputBuffer);
+
+                if (outputLength > 0) {
+                    // ✅ Write decrypted data immediately
+                    outputStream.write(outputBuffer, 0, outputLength);
+
+                    // ✅ CRITICAL: Force flush so JavaScript FileSystem.getInfoAsync()
+                    // sees the file growth immediately (matches iOS streamStatus)
+                    outputStream.flush();
+                    outputStream.getFD().sync(); // Force OS-level sync
+
+                    Log.d(TAG, String.format("✅ Decrypted and wrote: %d bytes (flushed)", outputLength));
+                }
+            }
+
+            // ✅ Finalize decryption (handle padding removal)
+            int finalLength = cipher.doFinal(outputBuffer, 0);
+            if (finalLength > 0) {
+                outputStream.write(outputBuffer, 0, finalLength);
+                outputStream.flush();
+                Log.d(TAG, String.format("✅ Final padding removal: %d bytes", finalLength));
+            }
+
+            Log.d(TAG, String.format("✅ Total downloaded and decrypted: %d bytes", totalDownloaded));
+        } finally {
+            bufferPool.release(inputBuffer);
+            bufferPool.release(outputBuffer);
+            reservation.close();
+        }
+        return totalDownloaded;
+    }
+}
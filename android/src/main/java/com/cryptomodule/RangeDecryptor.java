@@ -0,0 +1,99 @@
+package com.cryptomodule;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+// ✅ Partial decryption of an AES-CBC file: only the blocks covering [offset, offset + length)
+// are read and decrypted. The IV for block n is ciphertext block n - 1 (or the base IV for n = 0),
+// and padding is only removed when the range reaches the last block.
+final class RangeDecryptor {
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final String TRANSFORMATION_NO_PADDING = "AES/CBC/NoPadding";
+    private static final int AES_BLOCK_SIZE = 16;
+    private static final int READ_SIZE = 64 * 1024; // Block aligned
+
+    private final CipherProviderSelector cipherProviders;
+    private final BufferPool bufferPool;
+    private final MemoryBudget memoryBudget;
+
+    RangeDecryptor(CipherProviderSelector cipherProviders, BufferPool bufferPool, MemoryBudget memoryBudget) {
+        this.cipherProviders = cipherProviders;
+        this.bufferPool = bufferPool;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Decrypts the blocks covering the plaintext range and writes exactly the requested bytes
+     * (fewer if the range runs past the end of the plaintext). Returns the number of bytes written.
+     */
+    long decrypt(File inputFile, byte[] keyBytes, byte[] ivBytes, long offset, long length, OutputStream output) throws Exception {
+        long totalBlocks = inputFile.length() / AES_BLOCK_SIZE;
+        long firstBlock = offset / AES_BLOCK_SIZE;
+        if (length == 0 || firstBlock >= totalBlocks) {
+            return 0;
+        }
+        long lastBlock = Math.min((offset + length - 1) / AES_BLOCK_SIZE, totalBlocks - 1);
+        boolean reachesEof = lastBlock == totalBlocks - 1;
+
+        // Opened before any budget or pooled buffer is taken, so an unreadable file cannot leak them
+        RandomAccessFile file = new RandomAccessFile(inputFile, "r");
+        MemoryBudget.Reservation reservation = null;
+        byte[] inputBuffer = null;
+        byte[] outputBuffer = null;
+        long remaining = length;
+
+        try {
+            reservation = memoryBudget.reserve(
+                BufferPool.capacityFor(READ_SIZE) + BufferPool.capacityFor(READ_SIZE + AES_BLOCK_SIZE),
+                MemoryBudget.DEFAULT_ACQUIRE_TIMEOUT_MS);
+            inputBuffer = bufferPool.acquire(READ_SIZE);
+            outputBuffer = bufferPool.acquire(READ_SIZE + AES_BLOCK_SIZE);
+
+            // IV for the first block is the preceding ciphertext block
+            byte[] blockIv = ivBytes;
+            if (firstBlock > 0) {
+                blockIv = new byte[AES_BLOCK_SIZE];
+                file.seek((firstBlock - 1) * AES_BLOCK_SIZE);
+                file.readFully(blockIv);
+            }
+
+            // Padding only exists in the final block, so mid-file ranges use NoPadding
+            Cipher cipher = cipherProviders.newCipher(reachesEof ? TRANSFORMATION : TRANSFORMATION_NO_PADDING);
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(keyBytes, "AES"), new IvParameterSpec(blockIv));
+
+            file.seek(firstBlock * AES_BLOCK_SIZE);
+            long remainingCipher = (lastBlock - firstBlock + 1) * AES_BLOCK_SIZE;
+            long skip = offset - firstBlock * AES_BLOCK_SIZE; // Leading bytes of the first block outside the range
+
+            while (remainingCipher > 0 && remaining > 0) {
+                int toRead = (int) Math.min(READ_SIZE, remainingCipher);
+                file.readFully(inputBuffer, 0, toRead);
+                remainingCipher -= toRead;
+
+                int outputLength = remainingCipher == 0
+                    ? cipher.doFinal(inputBuffer, 0, toRead, outputBuffer)
+                    : cipher.update(inputBuffer, 0, toRead, outputBuffer);
+
+                int start = (int) Math.min(skip, outputLength);
+                skip -= start;
+                int count = (int) Math.min(outputLength - start, remaining);
+                if (count > 0) {
+                    output.write(outputBuffer, start, count);
+                    remaining -= count;
+                }
+            }
+        } finally {
+            bufferPool.release(inputBuffer);
+            bufferPool.release(outputBuffer);
+            if (reservation != null) {
+                reservation.close();
+            }
+            file.close();
+        }
+        return length - remaining;
+    }
+}
@@ -0,0 +1,230 @@
+package com.cryptomodule;
+
+import android.util.Base64;
+import android.util.Log;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import fi.iki.elonen.NanoHTTPD;
+
+// ✅ Local HTTP server for streaming decrypted content
+// Kept free of React Native types so it can be driven directly from JVM tests.
+final class StreamingHTTPServer extends NanoHTTPD {
+    private static final String TAG = "CryptoModule";
+    
+    // Registered from the module thread, read from NanoHTTPD request threads
+    private final Map<String, StreamConfig> activeStreams = new ConcurrentHashMap<>();
+    private final File cacheDir;
+    private final MemoryBudget memoryBudget;
+    private final BufferPool bufferPool;
+    private final CipherProviderSelector cipherProviders;
+    
+    public StreamingHTTPServer(int port, File cacheDir, MemoryBudget memoryBudget, BufferPool bufferPool, CipherProviderSelector cipherProviders) {
+        super(port);
+        this.cacheDir = cacheDir;
+        this.memoryBudget = memoryBudget;
+        this.bufferPool = bufferPool;
+        this.cipherProviders = cipherProviders;
+    }
+    
+    public void registerStream(String streamId, StreamConfig config) {
+        activeStreams.put(streamId, config);
+        Log.d(TAG, "✅ Registered stream: " + streamId);
+    }
+    
+    @Override
+    public Response serve(IHTTPSession session) {
+        String uri = session.getUri();
+        String streamId = uri.substring(1); // Remove leading "/"
+        
+        Log.d(TAG, "🎬 HTTP request received for stream: " + streamId);
+        
+        StreamConfig config = activeStreams.get(streamId);
+        if (config == null) {
+            Log.e(TAG, "❌ Stream not found: " + streamId);
+            return newFixedLengthResponse(Response.Status.NOT_FOUND, MIME_PLAINTEXT, "Stream not found");
+        }
+        
+        try {
+            // Download and decrypt the video
+            DecryptedContent content = downloadAndDecrypt(config);
+            
+            if (content == null) {
+                return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, MIME_PLAINTEXT, "Decryption failed");
+            }
+            
+            Log.d(TAG, "📤 Serving " + content.length + " bytes to video player");
+            
+            Response response = newFixedLengthResponse(Response.Status.OK, "video/mp4", 
+                content.stream, content.length);
+            response.addHeader("Accept-Ranges", "bytes");
+            response.addHeader("Access-Control-Allow-Origin", "*");
+            
+            return response;
+            
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Error serving stream: " + e.getMessage());
+            e.printStackTrace();
+            return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, MIME_PLAINTEXT, 
+                "Error: " + e.getMessage());
+        }
+    }
+    
+    // ✅ Decrypts into memory when the body is small and the memory budget has room right now,
+    // otherwise (or when Content-Length is unknown) spills to a temp file in the cache dir
+    private DecryptedContent downloadAndDecrypt(StreamConfig config) {
+        File spillFile = null;
+        MemoryBudget.Reservation reservation = null;
+        boolean handedOff = false;
+        
+        try {
+            Log.d(TAG, "📥 Downloading from: " + config.inputUri);
+            
+            // Setup HTTP connection
+            URL url = new URL(config.inputUri);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            if (config.token != null && !config.token.isEmpty()) {
+                connection.setRequestProperty("Authorization", "Bearer " + config.token);
+            }
+            
+            InputStream inputStream = connection.getInputStream();
+            long contentLength = connection.getContentLength(); // -1 when unknown
+            
+            // Setup decryption
+            byte[] keyBytes = Base64.decode(config.keyBase64, Base64.DEFAULT);
+            byte[] ivBytes = Base64.decode(config.ivBase64, Base64.DEFAULT);
+            
+            SecretKeySpec keySpec = new SecretKeySpec(keyBytes, "AES");
+            IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
+            Cipher cipher = cipherProviders.newCipher();
+            cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
+            
+            // Read and decrypt with read/batch sizes adapted to the connection and device
+            AdaptiveChunkSizer sizer = AdaptiveChunkSizer.forDevice(memoryBudget);
+            
+            // Choose in-memory or spill-to-disk based on the memory budget. The body and the decrypt
+            // buffers are taken in one non-blocking reservation, so this thread never waits for
+            // budget while holding some; a busy budget spills instead
+            if (!memoryBudget.shouldStream(contentLength)) {
+                reservation = memoryBudget.tryReserve(contentLength * 2 + sizer.getWorkingSetBytes());
+            }
+            OutputStream decryptedOutput;
+            if (reservation == null) {
+                spillFile = File.createTempFile("stream-", ".mp4", cacheDir);
+                decryptedOutput = new FileOutputStream(spillFile);
+                Log.d(TAG, "💾 Content length " + contentLength + " too large for the memory budget right now, spilling to: " + spillFile.getPath());
+            } else {
+                decryptedOutput = new ByteArrayOutputStream((int) contentLength);
+            }
+            
+            try {
+                // Spilling holds no budget yet, so the decrypt loop may wait for its own reservation
+                long totalDownloaded = reservation != null
+                    ? sizer.decryptStream(inputStream, decryptedOutput, cipher, bufferPool, false, reservation)
+                    : sizer.decryptStream(inputStream, decryptedOutput, cipher, bufferPool, false);
+                Log.d(TAG, String.format("📥 Downloaded and decrypted: %d KB (read size %d, batch size %d)",
+                    totalDownloaded / 1024, sizer.getReadSize(), sizer.getBatchSize()));
+            } finally {
+                inputStream.close();
+                decryptedOutput.close();
+                connection.disconnect();
+            }
+            
+            DecryptedContent content;
+            if (spillFile != null) {
+                final File servedFile = spillFile;
+                content = new DecryptedContent(
+                    new ReleasingInputStream(new FileInputStream(servedFile), () -> servedFile.delete()),
+                    servedFile.length());
+            } else {
+                final MemoryBudget.Reservation heldReservation = reservation;
+                byte[] decryptedData = ((ByteArrayOutputStream) decryptedOutput).toByteArray();
+                content = new DecryptedContent(
+                    new ReleasingInputStream(new ByteArrayInputStream(decryptedData), heldReservation::close),
+                    decryptedData.length);
+            }
+            handedOff = true;
+            
+            Log.d(TAG, "✅ Total decrypted: " + content.length + " bytes");
+            
+            return content;
+            
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Download and decrypt failed: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        } finally {
+            // On failure nothing was handed to the response, so clean up here
+            if (!handedOff) {
+                if (reservation != null) {
+                    reservation.close();
+                }
+                if (spillFile != null) {
+                    spillFile.delete();
+                }
+            }
+        }
+    }
+    
+    // ✅ Decrypted body ready to serve, with its exact length
+    private static class DecryptedContent {
+        final InputStream stream;
+        final long length;
+        
+        DecryptedContent(InputStream stream, long length) {
+            this.stream = stream;
+            this.length = length;
+        }
+    }
+    
+    // ✅ Runs a cleanup action (release budget / delete spill file) once the response is closed
+    private static class ReleasingInputStream extends FilterInputStream {
+        private final Runnable onClose;
+        private boolean closed = false;
+        
+        ReleasingInputStream(InputStream in, Runnable onClose) {
+            super(in);
+            this.onClose = onClose;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!closed) {
+                    closed = true;
+                    onClose.run();
+                }
+            }
+        }
+    }
+    
+    // ✅ Stream configuration holder
+    static class StreamConfig {
+        String inputUri;
+        String keyBase64;
+        String ivBase64;
+        String token;
+        
+        StreamConfig(String inputUri, String keyBase64, String ivBase64, String token) {
+            this.inputUri = inputUri;
+            this.keyBase64 = keyBase64;
+            this.ivBase64 = ivBase64;
+            this.token = token;
+        }
+    }
+}
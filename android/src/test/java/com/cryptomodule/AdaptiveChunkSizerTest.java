@@ -0,0 +1,164 @@
+package com.cryptomodule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class AdaptiveChunkSizerTest {
+    private static final long MS = 1000000L;
+
+    @Test
+    public void retuneStaysInBoundsAlignedAndMovesAtMostTwoX() {
+        Random random = new Random(42);
+        // An unaligned max must still yield aligned batches
+        AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(100000, 3 * 1024 * 1024 + 5);
+
+        for (int step = 0; step < 5000; step++) {
+            int before = sizer.getBatchSize();
+            // Rates from ~10KB/s to ~10GB/s, so both clamps and both 2x limits get hit
+            int requested = sizer.getReadSize();
+            int bytesRead = 1 + random.nextInt(requested);
+            sizer.recordRead(bytesRead, requested, (long) (bytesRead * Math.pow(10, 1 + random.nextInt(6))));
+            sizer.recordCipher(before, (long) (before * Math.pow(10, random.nextInt(5))));
+            sizer.recordWrite(before, (long) (before * Math.pow(10, random.nextInt(5))));
+            sizer.retune();
+
+            int after = sizer.getBatchSize();
+            assertTrue("batch below minimum: " + after, after >= AdaptiveChunkSizer.MIN_BATCH_SIZE);
+            assertTrue("batch above maximum: " + after, after <= sizer.getMaxBatchSize());
+            assertEquals("batch not block aligned: " + after, 0, after % 16);
+            assertTrue("grew more than 2x: " + before + " -> " + after, after <= before * 2);
+            assertTrue("shrank more than 2x: " + before + " -> " + after, after * 2 >= before);
+
+            int readSize = sizer.getReadSize();
+            assertTrue("read below minimum: " + readSize, readSize >= AdaptiveChunkSizer.MIN_READ_SIZE);
+            assertTrue("read above maximum: " + readSize, readSize <= AdaptiveChunkSizer.MAX_READ_SIZE);
+            assertTrue("read larger than batch: " + readSize, readSize <= after);
+        }
+        assertTrue(sizer.getRetunes() > 0);
+    }
+
+    @Test
+    public void slowNetworkShrinksTowardsMinimum() {
+        AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(4 * 1024 * 1024, 4 * 1024 * 1024);
+        for (int step = 0; step < 20; step++) {
+            // 16KB per second; fast cipher and disk
+            sizer.recordRead(16 * 1024, 16 * 1024, 1000 * MS);
+            sizer.recordCipher(sizer.getBatchSize(), MS);
+            sizer.recordWrite(sizer.getBatchSize(), MS);
+            sizer.retune();
+        }
+        assertEquals(AdaptiveChunkSizer.MIN_BATCH_SIZE, sizer.getBatchSize());
+    }
+
+    @Test
+    public void halvingRoundsUpToAWholeBlock() {
+        // 131088 / 2 = 65544 is not block aligned; rounding down would be a step of more than 2x
+        AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(128 * 1024 + 16, 4 * 1024 * 1024);
+        sizer.recordRead(16 * 1024, 16 * 1024, 1000 * MS);
+        sizer.recordCipher(sizer.getBatchSize(), MS);
+        sizer.retune();
+
+        assertEquals(64 * 1024 + 16, sizer.getBatchSize());
+    }
+
+    @Test
+    public void fastNetworkGrowsUntilProcessingBound() {
+        AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(64 * 1024, 4 * 1024 * 1024);
+        for (int step = 0; step < 20; step++) {
+            // 1GB/s network, cipher + write ~ 40MB/s combined: 50ms of work is ~2MB
+            sizer.recordRead(256 * 1024, 256 * 1024, MS / 4);
+            sizer.recordCipher(1024 * 1024, 12 * MS);
+            sizer.recordWrite(1024 * 1024, 12 * MS);
+            sizer.retune();
+        }
+        int batch = sizer.getBatchSize();
+        assertTrue("expected ~2MB batches, got " + batch, batch > 1024 * 1024 && batch < 3 * 1024 * 1024);
+    }
+
+    @Test
+    public void decryptStreamRoundTripsAndReleasesBudget() throws Exception {
+        byte[] key = new byte[32];
+        byte[] iv = new byte[16];
+        byte[] plaintext = new byte[3 * 1024 * 1024 + 7];
+        new Random(1).nextBytes(plaintext);
+        Cipher encrypt = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        encrypt.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+        byte[] ciphertext = encrypt.doFinal(plaintext);
+
+        MemoryBudget budget = new MemoryBudget(64L * 1024 * 1024, 16L * 1024 * 1024);
+        BufferPool pool = new BufferPool(16L * 1024 * 1024, true);
+        AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(64 * 1024, 1024 * 1024, budget);
+        Cipher decrypt = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        decrypt.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long read = sizer.decryptStream(new TrickleInputStream(ciphertext, 1000), output, decrypt, pool, false);
+
+        assertEquals(ciphertext.length, read);
+        assertArrayEquals(plaintext, output.toByteArray());
+        assertEquals(0, budget.getInFlightBytes());
+        assertEquals(0, pool.getOutstandingCount());
+    }
+
+    @Test
+    public void decryptStreamGrowsACallerReservationWithoutClosingIt() throws Exception {
+        byte[] key = new byte[32];
+        byte[] iv = new byte[16];
+        byte[] plaintext = new byte[2 * 1024 * 1024 + 3];
+        new Random(2).nextBytes(plaintext);
+        Cipher encrypt = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        encrypt.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+        byte[] ciphertext = encrypt.doFinal(plaintext);
+
+        MemoryBudget budget = new MemoryBudget(64L * 1024 * 1024, 16L * 1024 * 1024);
+        BufferPool pool = new BufferPool(16L * 1024 * 1024, true);
+        AdaptiveChunkSizer sizer = new AdaptiveChunkSizer(64 * 1024, 1024 * 1024, budget);
+        Cipher decrypt = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        decrypt.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // The caller holds the body plus the working set, as the HTTP server does
+        long bodyBytes = ciphertext.length * 2L;
+        MemoryBudget.Reservation reservation = budget.tryReserve(bodyBytes + sizer.getWorkingSetBytes());
+        long initialBytes = reservation.getBytes();
+        long read = sizer.decryptStream(new ByteArrayInputStream(ciphertext), output, decrypt, pool, false, reservation);
+
+        assertEquals(ciphertext.length, read);
+        assertArrayEquals(plaintext, output.toByteArray());
+        assertTrue("bigger batches should grow the reservation", reservation.getBytes() > initialBytes);
+        assertTrue(reservation.getBytes() >= bodyBytes + sizer.getWorkingSetBytes());
+        assertEquals(reservation.getBytes(), budget.getInFlightBytes());
+        assertEquals(0, pool.getOutstandingCount());
+        reservation.close();
+        assertEquals(0, budget.getInFlightBytes());
+    }
+
+    // Returns at most maxRead bytes per call, like a socket under a slow network
+    private static final class TrickleInputStream extends ByteArrayInputStream {
+        private final int maxRead;
+
+        TrickleInputStream(byte[] data, int maxRead) {
+            super(data);
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) {
+            return super.read(buffer, offset, Math.min(length, maxRead));
+        }
+    }
+}
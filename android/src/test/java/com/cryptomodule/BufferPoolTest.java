@@ -0,0 +1,178 @@
+package com.cryptomodule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BufferPoolTest {
+    private static final int KB = 1024;
+
+    @Test
+    public void sizeClassesArePowersOfTwoPlusOneBlock() {
+        BufferPool pool = new BufferPool(64L * 1024 * 1024, false);
+
+        assertEquals(4 * KB + 16, pool.acquire(1).length);
+        assertEquals(4 * KB + 16, pool.acquire(4 * KB + 16).length);
+        assertEquals(8 * KB + 16, pool.acquire(4 * KB + 17).length);
+        // A chunk-sized request also fits the cipher output for that chunk
+        assertEquals(64 * KB + 16, pool.acquire(64 * KB + 16).length);
+        // Beyond the largest class: exact size, never pooled
+        int huge = 16 * KB * KB + 17;
+        assertEquals(huge, pool.acquire(huge).length);
+
+        assertEquals(4 * KB + 16, BufferPool.capacityFor(100));
+        assertEquals(16 * KB + 16, BufferPool.capacityFor(16 * KB));
+        assertEquals(huge, BufferPool.capacityFor(huge));
+    }
+
+    @Test
+    public void releasedBuffersAreReused() {
+        BufferPool pool = new BufferPool(64L * 1024 * 1024, false);
+
+        byte[] first = pool.acquire(16 * KB);
+        pool.release(first);
+        assertSame(first, pool.acquire(10 * KB));
+
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getMisses());
+        assertEquals(1, pool.getOutstandingCount());
+    }
+
+    @Test
+    public void retainedBytesStayUnderTheCap() {
+        // Room for two 64KB-class buffers, not three
+        BufferPool pool = new BufferPool(2 * (64 * KB + 16), false);
+        byte[][] buffers = new byte[3][];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool.acquire(64 * KB);
+        }
+        for (byte[] buffer : buffers) {
+            pool.release(buffer);
+        }
+
+        assertEquals(2 * (64 * KB + 16), pool.getRetainedBytes());
+        assertEquals(1, pool.getDiscarded());
+        assertEquals(0, pool.getOutstandingCount());
+
+        pool.clear();
+        assertEquals(0, pool.getRetainedBytes());
+    }
+
+    @Test
+    public void eachClassKeepsAtMostFourIdleBuffers() {
+        BufferPool pool = new BufferPool(64L * 1024 * 1024, false);
+        byte[][] buffers = new byte[6][];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool.acquire(4 * KB);
+        }
+        for (byte[] buffer : buffers) {
+            pool.release(buffer);
+        }
+
+        assertEquals(4 * (4 * KB + 16), pool.getRetainedBytes());
+        assertEquals(2, pool.getDiscarded());
+    }
+
+    @Test
+    public void doubleReleaseIsIgnoredWithoutLeakTracking() {
+        BufferPool pool = new BufferPool(64L * 1024 * 1024, false);
+        byte[] buffer = pool.acquire(8 * KB);
+
+        pool.release(buffer);
+        pool.release(buffer);
+
+        // The array must not be on the free list twice, or two callers would share it
+        byte[] first = pool.acquire(8 * KB);
+        byte[] second = pool.acquire(8 * KB);
+        assertSame(buffer, first);
+        assertNotSame(first, second);
+        assertEquals(8 * KB + 16, pool.getRetainedBytes() + first.length);
+    }
+
+    @Test
+    public void foreignBuffersAreNotPooled() {
+        BufferPool pool = new BufferPool(64L * 1024 * 1024, false);
+
+        pool.release(new byte[4 * KB + 16]);
+
+        assertEquals(0, pool.getRetainedBytes());
+        assertNotSame(pool.acquire(4 * KB), pool.acquire(4 * KB));
+    }
+
+    @Test
+    public void leakReportCountsUnreleasedBuffers() {
+        BufferPool pool = new BufferPool(64L * 1024 * 1024, true);
+        byte[] released = pool.acquire(4 * KB);
+        pool.acquire(4 * KB);
+        pool.acquire(32 * KB);
+        pool.release(released);
+        pool.release(released);
+
+        assertTrue(pool.isTrackingLeaks());
+        assertEquals(2, pool.getOutstandingCount());
+        assertEquals(2, pool.reportLeaks());
+    }
+
+    @Test
+    public void leakReportIsOffWhenNotTracking() {
+        BufferPool pool = new BufferPool(64L * 1024 * 1024, false);
+        byte[] buffer = pool.acquire(4 * KB);
+
+        assertEquals(1, pool.getOutstandingCount());
+        assertEquals(0, pool.reportLeaks());
+        pool.release(buffer);
+    }
+
+    @Test
+    public void unreleasedBuffersAreNotPinnedWithoutLeakTracking() throws Exception {
+        BufferPool pool = new BufferPool(64L * 1024 * 1024, false);
+        WeakReference<byte[]> dropped = new WeakReference<>(pool.acquire(16 * 1024 * KB));
+
+        for (int i = 0; i < 50 && dropped.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("a missed release must not keep the buffer alive", dropped.get());
+        assertEquals(0, pool.getOutstandingCount());
+    }
+
+    @Test
+    public void failedStreamingOpenReleasesEverything() throws Exception {
+        MemoryBudget budget = new MemoryBudget(64L * 1024 * 1024, 16L * 1024 * 1024);
+        BufferPool pool = new BufferPool(16L * 1024 * 1024, false);
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(new byte[32], "AES"), new IvParameterSpec(new byte[16]));
+        InputStream failingConnection = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+
+        try {
+            AdaptiveChunkSizer.forDevice(budget).decryptStream(failingConnection, new ByteArrayOutputStream(), cipher, pool, true);
+            fail("expected the read to fail");
+        } catch (IOException expected) {
+        }
+
+        assertEquals(0, pool.getOutstandingCount());
+        assertEquals(0, budget.getInFlightBytes());
+    }
+}
@@ -0,0 +1,191 @@
+package com.cryptomodule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import java.security.AlgorithmParameters;
+import java.security.Key;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.CipherSpi;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CipherProviderSelectorTest {
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final String BROKEN_PROVIDER = "CryptoModuleTestBroken";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        Security.addProvider(new BrokenProvider());
+    }
+
+    @After
+    public void tearDown() {
+        Security.removeProvider(BROKEN_PROVIDER);
+    }
+
+    @Test
+    public void providerFailingTheKnownAnswerTestIsNeverSelected() throws Exception {
+        CipherProviderSelector selector = new CipherProviderSelector(context, TRANSFORMATION);
+        selector.initialize();
+        awaitCalibration(selector);
+
+        // The broken provider just copies bytes, so it would win on speed alone
+        assertEquals(Double.valueOf(0), selector.getLastResults().get(BROKEN_PROVIDER));
+        assertEquals(CipherProviderSelector.SOURCE_BENCHMARK, selector.getSource());
+        assertNotEquals(BROKEN_PROVIDER, selector.getProviderName());
+        assertTrue(selector.getRecommendedChunkSize() > 0);
+    }
+
+    @Test
+    public void overrideIsPersistedAndClearedByNull() throws Exception {
+        String defaultProvider = Cipher.getInstance(TRANSFORMATION).getProvider().getName();
+        CipherProviderSelector selector = new CipherProviderSelector(context, TRANSFORMATION);
+
+        assertFalse(selector.setOverride("NoSuchProvider"));
+        assertTrue(selector.setOverride(defaultProvider));
+        assertEquals(CipherProviderSelector.SOURCE_OVERRIDE, selector.getSource());
+        assertEquals(defaultProvider, selector.getProviderName());
+
+        CipherProviderSelector restarted = new CipherProviderSelector(context, TRANSFORMATION);
+        restarted.initialize();
+        assertEquals(CipherProviderSelector.SOURCE_OVERRIDE, restarted.getSource());
+
+        assertTrue(restarted.setOverride(null));
+        assertNotEquals(CipherProviderSelector.SOURCE_OVERRIDE, restarted.getSource());
+        awaitCalibration(restarted);
+        assertEquals(CipherProviderSelector.SOURCE_BENCHMARK, restarted.getSource());
+
+        // Cleared from prefs too: the next start uses the calibrated choice, not the override
+        CipherProviderSelector afterClear = new CipherProviderSelector(context, TRANSFORMATION);
+        afterClear.initialize();
+        assertEquals(CipherProviderSelector.SOURCE_CACHED, afterClear.getSource());
+    }
+
+    @Test
+    public void overrideKeepsTheCalibratedChunkSize() throws Exception {
+        CipherProviderSelector selector = new CipherProviderSelector(context, TRANSFORMATION);
+        selector.initialize();
+        awaitCalibration(selector);
+        int chunkSize = selector.getRecommendedChunkSize();
+        assertTrue(chunkSize > 0);
+        assertTrue(selector.setOverride(Cipher.getInstance(TRANSFORMATION).getProvider().getName()));
+
+        CipherProviderSelector restarted = new CipherProviderSelector(context, TRANSFORMATION);
+        restarted.initialize();
+        assertEquals(CipherProviderSelector.SOURCE_OVERRIDE, restarted.getSource());
+        assertEquals(chunkSize, restarted.getRecommendedChunkSize());
+    }
+
+    private static void awaitCalibration(CipherProviderSelector selector) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60 * 1000;
+        while (selector.isCalibrating() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse("calibration did not finish", selector.isCalibrating());
+    }
+
+    @SuppressWarnings("deprecation")
+    private static final class BrokenProvider extends Provider {
+        BrokenProvider() {
+            super(BROKEN_PROVIDER, 1.0, "AES-CBC that returns its input unchanged");
+            put("Cipher." + TRANSFORMATION, IdentityCipherSpi.class.getName());
+        }
+    }
+
+    // Copies input to output and appends PKCS5 padding, so every known-answer check fails
+    public static final class IdentityCipherSpi extends CipherSpi {
+        private int mode;
+
+        @Override
+        protected void engineSetMode(String mode) {
+        }
+
+        @Override
+        protected void engineSetPadding(String padding) {
+        }
+
+        @Override
+        protected int engineGetBlockSize() {
+            return 16;
+        }
+
+        @Override
+        protected int engineGetOutputSize(int inputLen) {
+            return inputLen + 16;
+        }
+
+        @Override
+        protected byte[] engineGetIV() {
+            return null;
+        }
+
+        @Override
+        protected AlgorithmParameters engineGetParameters() {
+            return null;
+        }
+
+        @Override
+        protected void engineInit(int opmode, Key key, SecureRandom random) {
+            mode = opmode;
+        }
+
+        @Override
+        protected void engineInit(int opmode, Key key, AlgorithmParameterSpec params, SecureRandom random) {
+            engineInit(opmode, key, random);
+        }
+
+        @Override
+        protected void engineInit(int opmode, Key key, AlgorithmParameters params, SecureRandom random) {
+            engineInit(opmode, key, random);
+        }
+
+        @Override
+        protected byte[] engineUpdate(byte[] input, int inputOffset, int inputLen) {
+            byte[] output = new byte[inputLen];
+            System.arraycopy(input, inputOffset, output, 0, inputLen);
+            return output;
+        }
+
+        @Override
+        protected int engineUpdate(byte[] input, int inputOffset, int inputLen, byte[] output, int outputOffset) {
+            System.arraycopy(input, inputOffset, output, outputOffset, inputLen);
+            return inputLen;
+        }
+
+        @Override
+        protected byte[] engineDoFinal(byte[] input, int inputOffset, int inputLen) {
+            byte[] output = engineUpdate(input, inputOffset, inputLen);
+            if (mode == Cipher.ENCRYPT_MODE) {
+                output = Arrays.copyOf(output, inputLen + 16);
+                Arrays.fill(output, inputLen, output.length, (byte) 16);
+            }
+            return output;
+        }
+
+        @Override
+        protected int engineDoFinal(byte[] input, int inputOffset, int inputLen, byte[] output, int outputOffset) {
+            byte[] result = engineDoFinal(input, inputOffset, inputLen);
+            System.arraycopy(result, 0, output, outputOffset, result.length);
+            return result.length;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.cryptomodule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CompressedTextTest {
+    private static final byte[] KEY = new byte[32];
+    private static final byte[] IV = new byte[16];
+
+    static {
+        Random random = new Random(7);
+        random.nextBytes(KEY);
+        random.nextBytes(IV);
+    }
+
+    private final BufferPool bufferPool = new BufferPool(1024 * 1024, true);
+
+    @Test
+    public void compressedRoundTrip() throws Exception {
+        String text = repeatedJson(2000) + " ünïcødé ✅";
+        byte[] textData = text.getBytes(StandardCharsets.UTF_8);
+
+        byte[] encrypted = CompressedText.encrypt(textData, cipher(Cipher.ENCRYPT_MODE), true);
+        byte[] decrypted = cipher(Cipher.DECRYPT_MODE).doFinal(encrypted);
+
+        assertTrue("compressible text should shrink", encrypted.length < textData.length / 4);
+        assertTrue(CompressedText.hasHeader(decrypted));
+        assertEquals(text, CompressedText.decode(decrypted, bufferPool, null, Long.MAX_VALUE));
+        assertEquals(0, bufferPool.getOutstandingCount());
+    }
+
+    @Test
+    public void uncompressedPayloadIsPlainCiphertext() throws Exception {
+        byte[] textData = "short".getBytes(StandardCharsets.UTF_8);
+
+        byte[] encrypted = CompressedText.encrypt(textData, cipher(Cipher.ENCRYPT_MODE), false);
+
+        // Same bytes the original encryptTextContent produces, so older readers can decrypt it
+        assertArrayEquals(cipher(Cipher.ENCRYPT_MODE).doFinal(textData), encrypted);
+    }
+
+    @Test
+    public void legacyPayloadWithoutHeaderPassesThrough() throws Exception {
+        String text = repeatedJson(100);
+        byte[] legacyEncrypted = cipher(Cipher.ENCRYPT_MODE).doFinal(text.getBytes(StandardCharsets.UTF_8));
+        byte[] decrypted = cipher(Cipher.DECRYPT_MODE).doFinal(legacyEncrypted);
+
+        assertFalse(CompressedText.hasHeader(decrypted));
+        assertEquals(text, CompressedText.decode(decrypted, bufferPool, null, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void inflationGrowsTheReservation() throws Exception {
+        String text = repeatedJson(20000);
+        byte[] decrypted = encryptThenDecrypt(text);
+        MemoryBudget budget = new MemoryBudget(64L * 1024 * 1024, 16L * 1024 * 1024);
+
+        try (MemoryBudget.Reservation reservation = budget.reserve(decrypted.length, 1000)) {
+            assertEquals(text, CompressedText.decode(decrypted, bufferPool, reservation, budget.getInMemoryThreshold()));
+            assertTrue("inflated text should be budgeted", reservation.getBytes() >= text.length() * 2L);
+        }
+        assertEquals(0, budget.getInFlightBytes());
+    }
+
+    @Test
+    public void inflationPastTheCapIsRejected() throws Exception {
+        // ~600KB of text deflates to a few KB; a 64KB cap must stop it early
+        byte[] decrypted = encryptThenDecrypt(repeatedJson(20000));
+        MemoryBudget budget = new MemoryBudget(64L * 1024 * 1024, 16L * 1024 * 1024);
+
+        try (MemoryBudget.Reservation reservation = budget.reserve(decrypted.length, 1000)) {
+            CompressedText.decode(decrypted, bufferPool, reservation, 64 * 1024);
+            fail("expected the inflation cap to trip");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("inflates beyond"));
+        }
+        assertEquals(0, budget.getInFlightBytes());
+        assertEquals(0, bufferPool.getOutstandingCount());
+    }
+
+    @Test
+    public void inflationFailsFastWhenTheBudgetIsBusy() throws Exception {
+        byte[] decrypted = encryptThenDecrypt(repeatedJson(20000));
+        MemoryBudget budget = new MemoryBudget(1024 * 1024, 256 * 1024);
+
+        // Another job holds most of the budget; waiting for it while holding our own share could deadlock
+        try (MemoryBudget.Reservation other = budget.reserve(900 * 1024, 1000);
+             MemoryBudget.Reservation reservation = budget.reserve(decrypted.length, 1000)) {
+            long start = System.currentTimeMillis();
+            try {
+                CompressedText.decode(decrypted, bufferPool, reservation, budget.getInMemoryThreshold());
+                fail("expected a busy budget to fail the decode");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().contains("Memory budget busy"));
+            }
+            assertTrue("decode waited for budget", System.currentTimeMillis() - start < 1000);
+        }
+        assertEquals(0, budget.getInFlightBytes());
+        assertEquals(0, bufferPool.getOutstandingCount());
+    }
+
+    @Test
+    public void headerRequiresAllFourBytes() {
+        assertFalse(CompressedText.hasHeader(null));
+        assertFalse(CompressedText.hasHeader(Arrays.copyOf(CompressedText.HEADER, 3)));
+        byte[] almost = CompressedText.HEADER.clone();
+        almost[3] = 0x02;
+        assertFalse(CompressedText.hasHeader(almost));
+        assertTrue(CompressedText.hasHeader(CompressedText.HEADER));
+    }
+
+    private static byte[] encryptThenDecrypt(String text) throws Exception {
+        byte[] encrypted = CompressedText.encrypt(text.getBytes(StandardCharsets.UTF_8), cipher(Cipher.ENCRYPT_MODE), true);
+        return cipher(Cipher.DECRYPT_MODE).doFinal(encrypted);
+    }
+
+    private static Cipher cipher(int mode) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(mode, new SecretKeySpec(KEY, "AES"), new IvParameterSpec(IV));
+        return cipher;
+    }
+
+    private static String repeatedJson(int items) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"item-").append(i).append("\"}");
+        }
+        return json.append("]").toString();
+    }
+}
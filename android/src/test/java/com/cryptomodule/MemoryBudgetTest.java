@@ -0,0 +1,94 @@
+package com.cryptomodule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class MemoryBudgetTest {
+    private final MemoryBudget budget = new MemoryBudget(1000, 250);
+
+    @Test
+    public void reservationGrowsAndReleasesInOneGo() throws Exception {
+        MemoryBudget.Reservation reservation = budget.reserve(300, 100);
+        reservation.grow(200, 100);
+        assertTrue(reservation.tryGrow(100));
+
+        assertEquals(600, reservation.getBytes());
+        assertEquals(600, budget.getInFlightBytes());
+        assertEquals(1, budget.getActiveJobs());
+
+        reservation.close();
+        reservation.close(); // idempotent
+        assertEquals(0, budget.getInFlightBytes());
+        assertEquals(0, budget.getActiveJobs());
+        assertEquals(600, budget.getPeakBytes());
+    }
+
+    @Test
+    public void nonBlockingCallsFailFastWhenExhausted() throws Exception {
+        MemoryBudget.Reservation first = budget.reserve(800, 100);
+        MemoryBudget.Reservation second = budget.tryReserve(100);
+        assertNotNull(second);
+
+        assertNull(budget.tryReserve(200));
+        assertFalse(second.tryGrow(200));
+        assertEquals(900, budget.getInFlightBytes());
+
+        first.close();
+        assertTrue(second.tryGrow(200));
+        second.close();
+    }
+
+    @Test
+    public void reserveTimesOutInsteadOfWaitingForever() throws Exception {
+        try (MemoryBudget.Reservation hog = budget.reserve(1000, 100)) {
+            try {
+                budget.reserve(1, 50);
+                fail("expected a timeout");
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage().contains("Timed out"));
+            }
+            assertEquals(0, budget.getWaitingJobs());
+        }
+        assertEquals(0, budget.getInFlightBytes());
+    }
+
+    @Test
+    public void reserveWaitsForRelease() throws Exception {
+        final MemoryBudget.Reservation hog = budget.reserve(900, 100);
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+            hog.close();
+        });
+        releaser.start();
+
+        try (MemoryBudget.Reservation waiter = budget.reserve(500, 5000)) {
+            assertEquals(500, budget.getInFlightBytes());
+        }
+        releaser.join();
+    }
+
+    @Test
+    public void oversizedRequestsAreClampedToTheBudget() throws Exception {
+        try (MemoryBudget.Reservation reservation = budget.reserve(5000, 100)) {
+            assertEquals(1000, reservation.getBytes());
+            reservation.grow(10, 100); // already holds the whole budget, nothing left to add
+            assertTrue(reservation.tryGrow(10));
+            assertEquals(1000, reservation.getBytes());
+        }
+    }
+}
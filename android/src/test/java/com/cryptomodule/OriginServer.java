@@ -0,0 +1,200 @@
+package com.cryptomodule;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import fi.iki.elonen.NanoHTTPD;
+
+// ✅ In-process stand-in for the remote origin that serves encrypted fixtures.
+// Network conditions are configurable per test: bandwidth limit, latency before the first byte,
+// dropping the connection after N body bytes, Range support on/off and a required bearer token.
+final class OriginServer extends NanoHTTPD {
+    private final Map<String, byte[]> fixtures = new ConcurrentHashMap<>();
+
+    private volatile long bytesPerSecond = 0; // 0 = unlimited
+    private volatile long latencyMs = 0;
+    private volatile long dropAfterBytes = -1; // -1 = never
+    private volatile boolean rangeSupported = true;
+    private volatile String requiredToken = null;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+    private final AtomicInteger rejectedRequests = new AtomicInteger();
+    private final AtomicInteger droppedConnections = new AtomicInteger();
+    private final AtomicLong bytesServed = new AtomicLong();
+
+    OriginServer() throws IOException {
+        super("127.0.0.1", 0);
+        start(NanoHTTPD.SOCKET_READ_TIMEOUT, false);
+    }
+
+    String url(String path) {
+        return "http://127.0.0.1:" + getListeningPort() + "/" + path;
+    }
+
+    OriginServer addFixture(String path, byte[] encrypted) {
+        fixtures.put(path, encrypted);
+        return this;
+    }
+
+    OriginServer setBandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    OriginServer setLatency(long latencyMs) {
+        this.latencyMs = latencyMs;
+        return this;
+    }
+
+    OriginServer setDropAfterBytes(long dropAfterBytes) {
+        this.dropAfterBytes = dropAfterBytes;
+        return this;
+    }
+
+    OriginServer setRangeSupported(boolean rangeSupported) {
+        this.rangeSupported = rangeSupported;
+        return this;
+    }
+
+    OriginServer setRequiredToken(String requiredToken) {
+        this.requiredToken = requiredToken;
+        return this;
+    }
+
+    int getRequests() {
+        return requests.get();
+    }
+
+    int getRangeRequests() {
+        return rangeRequests.get();
+    }
+
+    int getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    int getDroppedConnections() {
+        return droppedConnections.get();
+    }
+
+    long getBytesServed() {
+        return bytesServed.get();
+    }
+
+    @Override
+    public Response serve(IHTTPSession session) {
+        requests.incrementAndGet();
+        Map<String, String> headers = session.getHeaders(); // NanoHTTPD lower-cases header names
+
+        if (requiredToken != null && !("Bearer " + requiredToken).equals(headers.get("authorization"))) {
+            rejectedRequests.incrementAndGet();
+            return newFixedLengthResponse(Response.Status.UNAUTHORIZED, MIME_PLAINTEXT, "Unauthorized");
+        }
+
+        byte[] body = fixtures.get(session.getUri().substring(1));
+        if (body == null) {
+            return newFixedLengthResponse(Response.Status.NOT_FOUND, MIME_PLAINTEXT, "Not found");
+        }
+
+        sleep(latencyMs);
+
+        long start = 0;
+        long end = body.length - 1;
+        Response.Status status = Response.Status.OK;
+        String range = headers.get("range");
+        if (rangeSupported && range != null && range.startsWith("bytes=")) {
+            rangeRequests.incrementAndGet();
+            String[] bounds = range.substring("bytes=".length()).split("-", -1);
+            try {
+                start = Long.parseLong(bounds[0]);
+                if (bounds.length > 1 && !bounds[1].isEmpty()) {
+                    end = Math.min(Long.parseLong(bounds[1]), body.length - 1);
+                }
+            } catch (NumberFormatException e) {
+                return newFixedLengthResponse(Response.Status.BAD_REQUEST, MIME_PLAINTEXT, "Bad range");
+            }
+            if (start > end || start >= body.length) {
+                Response response = newFixedLengthResponse(Response.Status.RANGE_NOT_SATISFIABLE, MIME_PLAINTEXT, "");
+                response.addHeader("Content-Range", "bytes */" + body.length);
+                return response;
+            }
+            status = Response.Status.PARTIAL_CONTENT;
+        }
+
+        long length = end - start + 1;
+        InputStream stream = new ConditionedInputStream(new ByteArrayInputStream(body, (int) start, (int) length));
+        Response response = newFixedLengthResponse(status, "application/octet-stream", stream, length);
+        if (rangeSupported) {
+            response.addHeader("Accept-Ranges", "bytes");
+        }
+        if (status == Response.Status.PARTIAL_CONTENT) {
+            response.addHeader("Content-Range", "bytes " + start + "-" + end + "/" + body.length);
+        }
+        return response;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Paces the body to the configured bandwidth and fails it after dropAfterBytes;
+    // NanoHTTPD closes the socket when the body stream throws, like a dropped connection
+    private class ConditionedInputStream extends FilterInputStream {
+        private final long startNanos = System.nanoTime();
+        private long sent = 0;
+
+        ConditionedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long limit = bytesPerSecond;
+            long drop = dropAfterBytes;
+            if (drop >= 0 && sent >= drop) {
+                droppedConnections.incrementAndGet();
+                throw new IOException("Simulated connection drop after " + sent + " bytes");
+            }
+            if (limit > 0) {
+                // Small slices keep the pacing smooth (~20 writes per second)
+                length = (int) Math.min(length, Math.max(1, limit / 20));
+            }
+            if (drop >= 0) {
+                length = (int) Math.min(length, drop - sent);
+            }
+
+            int read = super.read(buffer, offset, length);
+            if (read <= 0) {
+                return read;
+            }
+            sent += read;
+            bytesServed.addAndGet(read);
+
+            if (limit > 0) {
+                long dueNanos = sent * 1_000_000_000L / limit;
+                long aheadMillis = (dueNanos - (System.nanoTime() - startNanos)) / 1_000_000;
+                sleep(aheadMillis);
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.cryptomodule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RangeDecryptorTest {
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final byte[] KEY = new byte[32];
+    private static final byte[] IV = new byte[16];
+
+    static {
+        Random random = new Random(3);
+        random.nextBytes(KEY);
+        random.nextBytes(IV);
+    }
+
+    private final MemoryBudget memoryBudget = new MemoryBudget(64L * 1024 * 1024, 16L * 1024 * 1024);
+    private final BufferPool bufferPool = new BufferPool(16L * 1024 * 1024, true);
+    private RangeDecryptor rangeDecryptor;
+    private File encryptedFile;
+
+    @Before
+    public void setUp() throws Exception {
+        CipherProviderSelector cipherProviders = new CipherProviderSelector(RuntimeEnvironment.getApplication(), TRANSFORMATION);
+        rangeDecryptor = new RangeDecryptor(cipherProviders, bufferPool, memoryBudget);
+        encryptedFile = File.createTempFile("range", ".enc");
+    }
+
+    @After
+    public void tearDown() {
+        encryptedFile.delete();
+        assertEquals(0, memoryBudget.getInFlightBytes());
+        assertEquals(0, bufferPool.getOutstandingCount());
+    }
+
+    @Test
+    public void midFileRanges() throws Exception {
+        byte[] plaintext = writeEncrypted(200 * 1024 + 5);
+
+        assertRange(plaintext, 0, 100);            // First block, base IV
+        assertRange(plaintext, 16, 16);            // Exactly one aligned block
+        assertRange(plaintext, 17, 30);            // Unaligned start and end
+        assertRange(plaintext, 1000, 150 * 1024);  // Spans several 64KB reads
+        assertRange(plaintext, 65530, 20);         // Straddles a read boundary
+    }
+
+    @Test
+    public void rangesReachingThePaddingBlock() throws Exception {
+        byte[] plaintext = writeEncrypted(1000); // 1008 bytes of ciphertext, last block is 8 data + 8 padding
+
+        assertRange(plaintext, 990, 10);    // Ends exactly at the end of the plaintext
+        assertRange(plaintext, 985, 100);   // Straddles the padding block, clamped
+        assertRange(plaintext, 993, 7);     // Inside the padding block only
+        assertRange(plaintext, 0, 1000);    // Whole file
+    }
+
+    @Test
+    public void zeroLength() throws Exception {
+        byte[] plaintext = writeEncrypted(100);
+
+        assertRange(plaintext, 0, 0);
+        assertRange(plaintext, 50, 0);
+    }
+
+    @Test
+    public void rangesPastEndOfFile() throws Exception {
+        byte[] plaintext = writeEncrypted(100); // 112 bytes of ciphertext
+
+        assertRange(plaintext, 100, 10);    // Starts exactly at the end of the plaintext
+        assertRange(plaintext, 105, 10);    // Starts inside the padding
+        assertRange(plaintext, 112, 10);    // Starts at the end of the ciphertext
+        assertRange(plaintext, 5000, 10);   // Far past the end
+    }
+
+    @Test
+    public void plaintextSizeMultipleOfBlock() throws Exception {
+        byte[] plaintext = writeEncrypted(4096); // Last ciphertext block is padding only
+
+        assertRange(plaintext, 4080, 16);   // Last plaintext block, not the final ciphertext block
+        assertRange(plaintext, 4090, 100);  // Runs into the padding-only block
+        assertRange(plaintext, 4096, 16);   // Entirely inside the padding-only block
+        assertRange(plaintext, 0, 4096);
+    }
+
+    @Test
+    public void unreadableInputLeaksNothing() throws Exception {
+        // A directory has a non-zero length on most filesystems but cannot be opened for reading
+        File directory = encryptedFile.getParentFile();
+        assumeTrue(directory.length() >= 16);
+        try {
+            rangeDecryptor.decrypt(directory, KEY, IV, 0, 16, new ByteArrayOutputStream());
+            fail("expected the open to fail");
+        } catch (FileNotFoundException expected) {
+        }
+        // tearDown checks the budget and pool
+    }
+
+    private byte[] writeEncrypted(int size) throws Exception {
+        byte[] plaintext = new byte[size];
+        new Random(size).nextBytes(plaintext);
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY, "AES"), new IvParameterSpec(IV));
+        FileOutputStream output = new FileOutputStream(encryptedFile);
+        try {
+            output.write(cipher.doFinal(plaintext));
+        } finally {
+            output.close();
+        }
+        return plaintext;
+    }
+
+    private void assertRange(byte[] plaintext, long offset, long length) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long written = rangeDecryptor.decrypt(encryptedFile, KEY, IV, offset, length, output);
+
+        int from = (int) Math.min(offset, plaintext.length);
+        int to = (int) Math.min(offset + length, plaintext.length);
+        byte[] expected = Arrays.copyOfRange(plaintext, from, to);
+        String range = "range " + offset + "+" + length;
+        assertEquals(range, expected.length, written);
+        assertArrayEquals(range, expected, output.toByteArray());
+    }
+}
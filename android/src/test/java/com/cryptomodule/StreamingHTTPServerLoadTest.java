@@ -0,0 +1,565 @@
+package com.cryptomodule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import android.util.Base64;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import fi.iki.elonen.NanoHTTPD;
+
+// ✅ Load / soak harness for the HTTP paths: StreamingHTTPServer.downloadAndDecrypt behind the local
+// server, and the fixed and adaptive loops of the decryptFileWithStreaming HTTP branch.
+// Everything runs against an in-process OriginServer, so results are reproducible offline.
+// Each scenario prints one report line (throughput, TTFB, heap and budget peaks).
+// Soak: ./gradlew testDebugUnitTest -Dcryptomodule.soak.seconds=300
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class StreamingHTTPServerLoadTest {
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final long BUDGET_BYTES = 64L * 1024 * 1024;
+    private static final long IN_MEMORY_THRESHOLD = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Random random = new Random(42);
+    private byte[] key;
+    private byte[] iv;
+    private File cacheDir;
+    private OriginServer origin;
+    private MemoryBudget memoryBudget;
+    private BufferPool bufferPool;
+    private CipherProviderSelector cipherProviders;
+    private StreamingHTTPServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        key = randomBytes(32);
+        iv = randomBytes(16);
+        cacheDir = temporaryFolder.newFolder("cache");
+        origin = new OriginServer();
+        memoryBudget = new MemoryBudget(BUDGET_BYTES, IN_MEMORY_THRESHOLD);
+        bufferPool = new BufferPool(IN_MEMORY_THRESHOLD, true);
+        // Not calibrated: newCipher() uses the platform default provider
+        cipherProviders = new CipherProviderSelector(RuntimeEnvironment.getApplication(), TRANSFORMATION);
+        server = new StreamingHTTPServer(0, cacheDir, memoryBudget, bufferPool, cipherProviders);
+        server.start(NanoHTTPD.SOCKET_READ_TIMEOUT, false);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        origin.stop();
+    }
+
+    @Test
+    public void servesSmallBodyFromMemory() throws Exception {
+        byte[] plain = addFixture("small.mp4", 256 * 1024);
+
+        FetchResult result = fetch(register("small.mp4", null), null);
+
+        assertEquals(200, result.status);
+        assertArrayEquals(plain, result.body);
+        assertNoLeaks();
+    }
+
+    @Test
+    public void spillsLargeBodyToCacheDir() throws Exception {
+        byte[] plain = addFixture("large.mp4", 3 * 1024 * 1024 + 5);
+
+        FetchResult result = fetch(register("large.mp4", null), null);
+
+        assertEquals(200, result.status);
+        assertArrayEquals(plain, result.body);
+        assertNoLeaks();
+    }
+
+    @Test
+    public void forwardsBearerToken() throws Exception {
+        byte[] plain = addFixture("private.mp4", 128 * 1024);
+        origin.setRequiredToken("secret-token");
+
+        FetchResult accepted = fetch(register("private.mp4", "secret-token"), null);
+        FetchResult rejected = fetch(register("private.mp4", "wrong-token"), null);
+
+        assertEquals(200, accepted.status);
+        assertArrayEquals(plain, accepted.body);
+        assertEquals(500, rejected.status);
+        assertEquals(1, origin.getRejectedRequests());
+        assertNoLeaks();
+    }
+
+    @Test
+    public void droppedConnectionFailsWithoutLeaks() throws Exception {
+        addFixture("flaky.mp4", 2 * 1024 * 1024);
+        // Not block aligned, so the truncated ciphertext can never decrypt "successfully"
+        origin.setDropAfterBytes(100 * 1024 + 7);
+
+        FetchResult result = fetch(register("flaky.mp4", null), null);
+
+        assertEquals(500, result.status);
+        assertTrue(origin.getDroppedConnections() >= 1);
+        assertNoLeaks();
+    }
+
+    @Test
+    public void throttledOriginWithLatency() throws Exception {
+        byte[] plain = addFixture("slow.mp4", 1024 * 1024);
+        origin.setBandwidth(2 * 1024 * 1024).setLatency(150);
+
+        LoadReport report = new LoadReport("throttled 2MB/s + 150ms");
+        report.start();
+        FetchResult result = fetch(register("slow.mp4", null), null);
+        report.add(result);
+        report.finish();
+
+        assertEquals(200, result.status);
+        assertArrayEquals(plain, result.body);
+        // The whole body is decrypted before the first byte is served, so TTFB includes the download
+        assertTrue(result.ttfbNanos >= TimeUnit.MILLISECONDS.toNanos(150));
+        assertNoLeaks();
+    }
+
+    @Test
+    public void concurrentStreamsAndSeeksWithOriginRanges() throws Exception {
+        runConcurrentStreamsAndSeeks(true, 8, 3);
+    }
+
+    @Test
+    public void concurrentStreamsAndSeeksWithoutOriginRanges() throws Exception {
+        runConcurrentStreamsAndSeeks(false, 8, 3);
+    }
+
+    @Test
+    public void fixedProgressiveDecryptAgainstThrottledOrigin() throws Exception {
+        // Default decryptFileWithStreaming loop: 16KB reads, flush + fsync after each
+        byte[] plain = addFixture("fixed.mp4", 2 * 1024 * 1024 + 9);
+        origin.setBandwidth(4 * 1024 * 1024).setLatency(100);
+
+        ProgressiveResult result = runProgressive("fixed 16KB + fsync, 4MB/s + 100ms", "fixed.mp4", null, null);
+
+        assertArrayEquals(plain, result.read());
+        assertNoLeaks();
+    }
+
+    @Test
+    public void adaptiveProgressiveDecryptAgainstThrottledOrigin() throws Exception {
+        byte[] plain = addFixture("adaptive.mp4", 4 * 1024 * 1024);
+        origin.setBandwidth(8 * 1024 * 1024).setLatency(50);
+
+        AdaptiveChunkSizer sizer = AdaptiveChunkSizer.forDevice(memoryBudget);
+        ProgressiveResult result = runProgressive("adaptive, 8MB/s + 50ms", "adaptive.mp4", null, sizer);
+
+        assertArrayEquals(plain, result.read());
+        assertTrue(sizer.getRetunes() > 0);
+        assertNoLeaks();
+        System.out.println(String.format("📊 [adaptive sizes] read %d, batch %d, retunes %d, read %.1f MB/s, cipher %.1f MB/s",
+            sizer.getReadSize(), sizer.getBatchSize(), sizer.getRetunes(),
+            sizer.getReadBytesPerSecond() / (1024 * 1024), sizer.getCipherBytesPerSecond() / (1024 * 1024)));
+    }
+
+    @Test
+    public void adaptiveProgressiveDecryptStartsPromptlyOnSlowOrigin() throws Exception {
+        // At 64KB/s even the smallest full batch takes a second to arrive; output must not wait for it
+        byte[] plain = addFixture("slow-adaptive.mp4", 192 * 1024 + 3);
+        origin.setBandwidth(64 * 1024);
+
+        ProgressiveResult fixed = runProgressive("fixed 16KB + fsync, 64KB/s", "slow-adaptive.mp4", null, null);
+        ProgressiveResult adaptive = runProgressive("adaptive, 64KB/s", "slow-adaptive.mp4", null,
+            AdaptiveChunkSizer.forDevice(memoryBudget));
+
+        assertArrayEquals(plain, fixed.read());
+        assertArrayEquals(plain, adaptive.read());
+        assertTrue("adaptive first output took " + adaptive.firstOutputMillis() + " ms",
+            adaptive.firstOutputMillis() >= 0 && adaptive.firstOutputMillis() < 1000);
+        assertNoLeaks();
+    }
+
+    @Test
+    public void progressiveDecryptForwardsBearerToken() throws Exception {
+        byte[] plain = addFixture("private-progressive.mp4", 100 * 1024);
+        origin.setRequiredToken("secret-token");
+
+        ProgressiveResult result = runProgressive("bearer token", "private-progressive.mp4", "secret-token", null);
+        assertArrayEquals(plain, result.read());
+
+        try {
+            runProgressive("wrong token", "private-progressive.mp4", "wrong-token", null);
+            fail("expected the origin to reject the token");
+        } catch (IOException expected) {
+            assertEquals(1, origin.getRejectedRequests());
+        }
+        assertNoLeaks();
+    }
+
+    // Opt-in: -Dcryptomodule.soak.seconds=N keeps mixed traffic (throttling, latency, seeks, bad tokens)
+    // running for N seconds, then checks that nothing leaked
+    @Test
+    public void soak() throws Exception {
+        final int soakSeconds = Integer.getInteger("cryptomodule.soak.seconds", 0);
+        assumeTrue("Soak disabled (set cryptomodule.soak.seconds)", soakSeconds > 0);
+
+        final byte[] small = addFixture("soak-small.mp4", 200 * 1024 + 3);
+        final byte[] large = addFixture("soak-large.mp4", 2 * 1024 * 1024 + 11);
+        origin.setRequiredToken("soak-token").setLatency(20).setBandwidth(16 * 1024 * 1024);
+        final String smallUrl = register("soak-small.mp4", "soak-token");
+        final String largeUrl = register("soak-large.mp4", "soak-token");
+        final String unauthorizedUrl = register("soak-small.mp4", "wrong-token");
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(soakSeconds);
+
+        final LoadReport report = new LoadReport("soak " + soakSeconds + "s");
+        report.start();
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<Integer>> workers = new ArrayList<>();
+        for (int w = 0; w < 6; w++) {
+            final Random workerRandom = new Random(w);
+            workers.add(executor.submit(() -> {
+                int failures = 0;
+                while (System.nanoTime() < deadline) {
+                    int pick = workerRandom.nextInt(10);
+                    if (pick == 0) {
+                        failures += fetch(unauthorizedUrl, null).status == 500 ? 0 : 1;
+                        continue;
+                    }
+                    byte[] plain = pick < 6 ? small : large;
+                    String range = pick % 2 == 0 ? randomRange(workerRandom, plain.length) : null;
+                    FetchResult result = fetch(pick < 6 ? smallUrl : largeUrl, range);
+                    report.add(result);
+                    failures += matches(result, plain) ? 0 : 1;
+                }
+                return failures;
+            }));
+        }
+        int failures = 0;
+        for (Future<Integer> worker : workers) {
+            failures += worker.get(soakSeconds + 120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        report.finish();
+
+        assertEquals(0, failures);
+        assertNoLeaks();
+        assertTrue(bufferPool.getRetainedBytes() <= IN_MEMORY_THRESHOLD);
+    }
+
+    private void runConcurrentStreamsAndSeeks(boolean originRanges, int streams, int seeksPerStream) throws Exception {
+        origin.setRangeSupported(originRanges).setBandwidth(32 * 1024 * 1024).setLatency(25);
+        final byte[][] plains = new byte[streams][];
+        final String[] urls = new String[streams];
+        for (int i = 0; i < streams; i++) {
+            // Mix of in-memory and spilled bodies
+            plains[i] = addFixture("stream-" + i + ".mp4", (i % 2 == 0 ? 512 * 1024 : 2 * 1024 * 1024) + i);
+            urls[i] = register("stream-" + i + ".mp4", null);
+        }
+
+        final LoadReport report = new LoadReport((originRanges ? "origin ranges on" : "origin ranges off")
+            + ", " + streams + " streams x " + seeksPerStream + " seeks");
+        report.start();
+        ExecutorService executor = Executors.newFixedThreadPool(streams);
+        List<Future<Integer>> players = new ArrayList<>();
+        for (int i = 0; i < streams; i++) {
+            final int index = i;
+            players.add(executor.submit(() -> {
+                // Like a player: open from the start, then seek around
+                Random playerRandom = new Random(index);
+                int failures = 0;
+                FetchResult opened = fetch(urls[index], "bytes=0-");
+                report.add(opened);
+                failures += matches(opened, plains[index]) ? 0 : 1;
+                for (int s = 0; s < seeksPerStream; s++) {
+                    FetchResult seek = fetch(urls[index], randomRange(playerRandom, plains[index].length));
+                    report.add(seek);
+                    failures += matches(seek, plains[index]) ? 0 : 1;
+                }
+                return failures;
+            }));
+        }
+        int failures = 0;
+        for (Future<Integer> player : players) {
+            failures += player.get(120, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        report.finish();
+
+        assertEquals(0, failures);
+        assertEquals(streams * (1 + seeksPerStream), report.count());
+        // The local server always fetches the whole object, whatever the origin supports
+        assertEquals(0, origin.getRangeRequests());
+        assertTrue(memoryBudget.getPeakBytes() <= BUDGET_BYTES);
+        assertNoLeaks();
+    }
+
+    // ✅ Helpers
+
+    // Runs the decryptFileWithStreaming HTTP branch into a file and reports throughput and time to
+    // first decrypted byte on disk, which is what a JS poller watching the file size sees
+    private ProgressiveResult runProgressive(String name, String path, String token, AdaptiveChunkSizer sizer) throws Exception {
+        final File output = new File(temporaryFolder.getRoot(), UUID.randomUUID() + ".dec");
+        ProgressiveHttpDecryptor decryptor = new ProgressiveHttpDecryptor(cipherProviders, bufferPool, memoryBudget);
+        final long start = System.nanoTime();
+        final long[] firstOutputNanos = { -1 };
+        Thread watcher = new Thread(() -> {
+            while (firstOutputNanos[0] < 0 && !Thread.currentThread().isInterrupted()) {
+                if (output.length() > 0) {
+                    firstOutputNanos[0] = System.nanoTime() - start;
+                    return;
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "CryptoModule-output-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        try {
+            long received = decryptor.decrypt(origin.url(path), token, key, iv, output, sizer);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            watcher.join(1000);
+            System.out.println(String.format("📊 [%s] %.2f MB in %.2fs = %.2f MB/s | first output %d ms | budget peak %.1f MB",
+                name, received / 1048576.0, seconds, received / 1048576.0 / seconds,
+                TimeUnit.NANOSECONDS.toMillis(firstOutputNanos[0]), memoryBudget.getPeakBytes() / 1048576.0));
+        } finally {
+            watcher.interrupt();
+        }
+        return new ProgressiveResult(output, firstOutputNanos[0]);
+    }
+
+    private byte[] addFixture(String path, int size) throws Exception {
+        byte[] plain = randomBytes(size);
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+        origin.addFixture(path, cipher.doFinal(plain));
+        return plain;
+    }
+
+    private String register(String path, String token) {
+        String streamId = UUID.randomUUID().toString();
+        server.registerStream(streamId, new StreamingHTTPServer.StreamConfig(origin.url(path),
+            Base64.encodeToString(key, Base64.NO_WRAP), Base64.encodeToString(iv, Base64.NO_WRAP), token));
+        return "http://127.0.0.1:" + server.getListeningPort() + "/" + streamId;
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        synchronized (random) {
+            random.nextBytes(bytes);
+        }
+        return bytes;
+    }
+
+    private static String randomRange(Random random, int length) {
+        int start = random.nextInt(length);
+        int end = Math.min(length - 1, start + random.nextInt(256 * 1024));
+        return "bytes=" + start + "-" + end;
+    }
+
+    // A seek is correct either as the requested 206 slice or as a 200 with the full body
+    private static boolean matches(FetchResult result, byte[] plain) {
+        if (result.status == 200) {
+            return Arrays.equals(plain, result.body);
+        }
+        if (result.status == 206 && result.contentRange != null) {
+            String[] bounds = result.contentRange.replace("bytes ", "").split("[-/]");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Integer.parseInt(bounds[1]);
+            return Arrays.equals(Arrays.copyOfRange(plain, start, end + 1), result.body);
+        }
+        return false;
+    }
+
+    private static FetchResult fetch(String url, String range) throws IOException {
+        FetchResult result = new FetchResult();
+        long start = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setReadTimeout(60 * 1000);
+        if (range != null) {
+            connection.setRequestProperty("Range", range);
+            result.seek = true;
+        }
+        try {
+            result.status = connection.getResponseCode();
+            result.contentRange = connection.getHeaderField("Content-Range");
+            InputStream input = result.status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            if (input != null) {
+                try {
+                    byte[] buffer = new byte[64 * 1024];
+                    int read = input.read(buffer);
+                    result.ttfbNanos = System.nanoTime() - start;
+                    while (read != -1) {
+                        body.write(buffer, 0, read);
+                        read = input.read(buffer);
+                    }
+                } finally {
+                    input.close();
+                }
+            }
+            result.body = body.toByteArray();
+            result.totalNanos = System.nanoTime() - start;
+        } finally {
+            connection.disconnect();
+        }
+        return result;
+    }
+
+    // Cleanup happens when NanoHTTPD closes the response, which can trail the client's last read
+    private void assertNoLeaks() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline
+                && (memoryBudget.getInFlightBytes() > 0 || bufferPool.getOutstandingCount() > 0 || spillFileCount() > 0)) {
+            Thread.sleep(20);
+        }
+        assertEquals("memory budget still reserved", 0, memoryBudget.getInFlightBytes());
+        assertEquals("pooled buffers not released", 0, bufferPool.getOutstandingCount());
+        assertEquals("spill files left in cache dir", 0, spillFileCount());
+    }
+
+    private int spillFileCount() {
+        String[] files = cacheDir.list();
+        return files == null ? 0 : files.length;
+    }
+
+    private static class ProgressiveResult {
+        final File output;
+        final long firstOutputNanos; // -1 = nothing written
+
+        ProgressiveResult(File output, long firstOutputNanos) {
+            this.output = output;
+            this.firstOutputNanos = firstOutputNanos;
+        }
+
+        long firstOutputMillis() {
+            return firstOutputNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(firstOutputNanos);
+        }
+
+        byte[] read() throws IOException {
+            return Files.readAllBytes(output.toPath());
+        }
+    }
+
+    private static class FetchResult {
+        int status;
+        boolean seek;
+        String contentRange;
+        byte[] body = new byte[0];
+        long ttfbNanos;
+        long totalNanos;
+    }
+
+    // ✅ Collects per-request timings and samples heap usage while a scenario runs
+    private class LoadReport {
+        private final String name;
+        // Timings and counters only, so the report itself does not keep response bodies alive
+        private final List<Long> ttfbs = new ArrayList<>();
+        private long bytes = 0;
+        private int partial = 0;
+        private int seeks = 0;
+        private volatile boolean sampling = false;
+        private volatile long peakHeapBytes = 0;
+        private long baselineHeapBytes;
+        private long startNanos;
+        private Thread sampler;
+
+        LoadReport(String name) {
+            this.name = name;
+        }
+
+        void start() {
+            System.gc();
+            baselineHeapBytes = usedHeap();
+            peakHeapBytes = baselineHeapBytes;
+            sampling = true;
+            sampler = new Thread(() -> {
+                while (sampling) {
+                    peakHeapBytes = Math.max(peakHeapBytes, usedHeap());
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "CryptoModule-heap-sampler");
+            sampler.setDaemon(true);
+            sampler.start();
+            startNanos = System.nanoTime();
+        }
+
+        synchronized void add(FetchResult result) {
+            ttfbs.add(result.ttfbNanos);
+            bytes += result.body.length;
+            partial += result.status == 206 ? 1 : 0;
+            seeks += result.seek ? 1 : 0;
+        }
+
+        synchronized int count() {
+            return ttfbs.size();
+        }
+
+        synchronized void finish() throws InterruptedException {
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            sampling = false;
+            sampler.join();
+            // Peak includes garbage not yet collected; the post-GC figure is what stays retained
+            System.gc();
+            long retainedHeapBytes = usedHeap() - baselineHeapBytes;
+
+            Collections.sort(ttfbs);
+
+            System.out.println(String.format(
+                "📊 [%s] %d requests (%d ranged, %d served as 206), %.2f MB in %.2fs = %.2f MB/s | "
+                    + "TTFB p50 %d ms, p95 %d ms, max %d ms | heap peak +%.1f MB, after GC %+.1f MB | budget peak %.1f MB | "
+                    + "pool hit rate %.0f%%, retained %.1f MB | origin %d requests, %.1f MB",
+                name, ttfbs.size(), seeks, partial, bytes / 1048576.0, seconds, bytes / 1048576.0 / seconds,
+                percentileMillis(ttfbs, 0.50), percentileMillis(ttfbs, 0.95), percentileMillis(ttfbs, 1.0),
+                (peakHeapBytes - baselineHeapBytes) / 1048576.0, retainedHeapBytes / 1048576.0, memoryBudget.getPeakBytes() / 1048576.0,
+                bufferPool.getHitRate() * 100, bufferPool.getRetainedBytes() / 1048576.0,
+                origin.getRequests(), origin.getBytesServed() / 1048576.0));
+        }
+
+        private long usedHeap() {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+
+        private long percentileMillis(List<Long> sorted, double percentile) {
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(0, index)));
+        }
+    }
+}
@@ -2,10 +2,19 @@
 #import <React/RCTBridgeModule.h>
 #import <CommonCrypto/CommonCryptor.h>
 #import <objc/runtime.h>
+#import <zlib.h>
 #import <GCDWebServer/GCDWebServerDataResponse.h>
 #import <GCDWebServer/GCDWebServerRequest.h>
 #import <GCDWebServer/GCDWebServerResponse.h>
 
+// Prefix written inside the ciphertext of compressed text (matches Android COMPRESSED_TEXT_HEADER).
+// 0xFF never occurs in valid UTF-8, so plain text payloads are never mistaken for compressed ones.
+static const uint8_t kCompressedTextHeader[] = { 0xFF, 'C', 'Z', 0x01 };
+static const NSUInteger kDefaultCompressionThreshold = 1024; // Skip compression below 1KB
+static const NSUInteger kMaxInflatedTextBytes = 16 * 1024 * 1024; // Same cap as Android on a 256MB heap
+static const unsigned long long kMaxBase64Range = 1024 * 1024; // Larger ranges must go to a file
+static const NSUInteger kRangeReadSize = 64 * 1024; // Block aligned
+
 @implementation CryptoModule
 
 // ✅ This is crucial for module registration
@@ -55,6 +64,57 @@ RCT_EXPORT_MODULE();
   return fileUri;
 }
 
+// Helper: zlib-compress data (same stream format as java.util.zip.Deflater)
+- (NSData *)deflateData:(NSData *)data {
+  uLongf compressedLength = compressBound((uLong)data.length);
+  NSMutableData *compressed = [NSMutableData dataWithLength:compressedLength];
+  int status = compress2(compressed.mutableBytes, &compressedLength,
+                         data.bytes, (uLong)data.length, Z_BEST_SPEED);
+  if (status != Z_OK) {
+    NSLog(@"❌ Deflate failed with status: %d", status);
+    return nil;
+  }
+  compressed.length = compressedLength;
+  return compressed;
+}
+
+// Helper: inflate a zlib stream produced by deflateData: or java.util.zip.Deflater
+// Returns nil past kMaxInflatedTextBytes, so a small crafted payload cannot exhaust memory
+- (NSData *)inflateBytes:(const uint8_t *)bytes length:(NSUInteger)length {
+  z_stream stream;
+  memset(&stream, 0, sizeof(stream));
+  if (inflateInit(&stream) != Z_OK) {
+    return nil;
+  }
+  
+  NSMutableData *inflated = [NSMutableData dataWithCapacity:MIN(length * 4, kMaxInflatedTextBytes)];
+  uint8_t buffer[64 * 1024];
+  stream.next_in = (Bytef *)bytes;
+  stream.avail_in = (uInt)length;
+  
+  int status;
+  do {
+    stream.next_out = buffer;
+    stream.avail_out = sizeof(buffer);
+    status = inflate(&stream, Z_NO_FLUSH);
+    if (status != Z_OK && status != Z_STREAM_END) {
+      NSLog(@"❌ Inflate failed with status: %d", status);
+      inflateEnd(&stream);
+      return nil;
+    }
+    NSUInteger produced = sizeof(buffer) - stream.avail_out;
+    if (inflated.length + produced > kMaxInflatedTextBytes) {
+      NSLog(@"❌ Compressed text inflates beyond %lu bytes", (unsigned long)kMaxInflatedTextBytes);
+      inflateEnd(&stream);
+      return nil;
+    }
+    [inflated appendBytes:buffer length:produced];
+  } while (status != Z_STREAM_END);
+  
+  inflateEnd(&stream);
+  return inflated;
+}
+
 // ✅ NEW: Start progressive streaming via local HTTP server
 RCT_REMAP_METHOD(decryptFileViaHTTPServer,
                  inputUri:(NSString *)inputUri
@@ -454,6 +514,19 @@ RCT_REMAP_METHOD(decryptTextContent,
   if (result == kCCSuccess) {
     decryptedData.length = outLength;
     
+    // ✅ Transparently inflate payloads produced by encryptTextContentCompressed
+    if (outLength >= sizeof(kCompressedTextHeader) &&
+        memcmp(decryptedData.bytes, kCompressedTextHeader, sizeof(kCompressedTextHeader)) == 0) {
+      NSLog(@"Compressed payload detected, inflating %lu bytes", (unsigned long)outLength);
+      NSData *inflatedData = [self inflateBytes:(const uint8_t *)decryptedData.bytes + sizeof(kCompressedTextHeader)
+                                         length:outLength - sizeof(kCompressedTextHeader)];
+      if (!inflatedData) {
+        reject(@"DECRYPT_FAILED", @"Failed to inflate compressed text", nil);
+        return;
+      }
+      decryptedData = [inflatedData mutableCopy];
+    }
+    
     // Convert to string
     NSString *decryptedString = [[NSString alloc] initWithData:decryptedData encoding:NSUTF8StringEncoding];
     
@@ -547,6 +620,96 @@ RCT_REMAP_METHOD(encryptTextContent,
   }
 }
 
+// ✅ Compress-then-encrypt for large text payloads (JSON etc.)
+// Text at or above the threshold is deflated and prefixed with kCompressedTextHeader before
+// encryption; decryptTextContent detects the header and inflates.
+RCT_REMAP_METHOD(encryptTextContentCompressed,
+                 textContent:(NSString *)textContent
+                 keyBase64:(NSString *)keyBase64
+                 ivBase64:(NSString *)ivBase64
+                 compressionThreshold:(NSNumber *)compressionThreshold
+                 resolver:(RCTPromiseResolveBlock)resolve
+                 rejecter:(RCTPromiseRejectBlock)reject)
+{
+  NSUInteger thresholdValue = [compressionThreshold unsignedIntegerValue];
+  if (thresholdValue == 0) {
+    thresholdValue = kDefaultCompressionThreshold;
+  }
+  
+  NSLog(@"=== COMPRESSED ENCRYPT TEXT START ===");
+  NSLog(@"compressionThreshold: %lu", (unsigned long)thresholdValue);
+  
+  if (!textContent || textContent.length == 0) {
+    reject(@"ENCRYPT_FAILED", @"Invalid text content", nil);
+    return;
+  }
+  
+  NSData *keyData = [[NSData alloc] initWithBase64EncodedString:keyBase64 options:NSDataBase64DecodingIgnoreUnknownCharacters];
+  NSData *ivData = [[NSData alloc] initWithBase64EncodedString:ivBase64 options:NSDataBase64DecodingIgnoreUnknownCharacters];
+  
+  if (!keyData || keyData.length != 32) {
+    reject(@"ENCRYPT_FAILED", @"Invalid key length", nil);
+    return;
+  }
+  
+  if (!ivData || ivData.length != 16) {
+    reject(@"ENCRYPT_FAILED", @"Invalid IV length", nil);
+    return;
+  }
+  
+  NSData *textData = [textContent dataUsingEncoding:NSUTF8StringEncoding];
+  if (!textData || textData.length == 0) {
+    reject(@"ENCRYPT_FAILED", @"Failed to convert text to data", nil);
+    return;
+  }
+  
+  NSData *plainData = textData;
+  if (textData.length >= thresholdValue) {
+    NSData *compressedData = [self deflateData:textData];
+    if (!compressedData) {
+      reject(@"ENCRYPT_FAILED", @"Failed to compress text", nil);
+      return;
+    }
+    NSMutableData *framedData = [NSMutableData dataWithCapacity:sizeof(kCompressedTextHeader) + compressedData.length];
+    [framedData appendBytes:kCompressedTextHeader length:sizeof(kCompressedTextHeader)];
+    [framedData appendData:compressedData];
+    plainData = framedData;
+  }
+  
+  NSLog(@"Text data length: %lu, payload length: %lu", (unsigned long)textData.length, (unsigned long)plainData.length);
+  
+  // Perform AES-256-CBC encryption
+  size_t outLength;
+  NSMutableData *encryptedData = [NSMutableData dataWithLength:plainData.length + kCCBlockSizeAES128];
+  
+  CCCryptorStatus result = CCCrypt(
+    kCCEncrypt,
+    kCCAlgorithmAES,
+    kCCOptionPKCS7Padding,
+    keyData.bytes, keyData.length,
+    ivData.bytes,
+    plainData.bytes, plainData.length,
+    encryptedData.mutableBytes, encryptedData.length,
+    &outLength
+  );
+  
+  if (result == kCCSuccess) {
+    encryptedData.length = outLength;
+    
+    NSString *encryptedBase64 = [encryptedData base64EncodedStringWithOptions:0];
+    
+    NSLog(@"✅ Compressed text encryption successful");
+    NSLog(@"Original size: %lu", (unsigned long)textData.length);
+    NSLog(@"Encrypted size: %lu", (unsigned long)encryptedData.length);
+    
+    resolve(encryptedBase64);
+  } else {
+    NSString *errorMessage = [NSString stringWithFormat:@"Encryption failed with status: %d", result];
+    NSLog(@"❌ %@", errorMessage);
+    reject(@"ENCRYPT_FAILED", errorMessage, nil);
+  }
+}
+
 // ✅ COMPLETE FIXED: Streaming decryption method with proper casting
 RCT_REMAP_METHOD(decryptFileWithStreaming,
                  inputUri:(NSString *)inputUri
@@ -558,7 +721,8 @@ RCT_REMAP_METHOD(decryptFileWithStreaming,
                  resolver:(RCTPromiseResolveBlock)resolve
                  rejecter:(RCTPromiseRejectBlock)reject)
 {
-  NSUInteger chunkSizeValue = [chunkSize unsignedIntegerValue];
+  // Adaptive mode (negative chunk size) is Android-only; fall back to the default here
+  NSUInteger chunkSizeValue = [chunkSize integerValue] > 0 ? [chunkSize unsignedIntegerValue] : 0;
   if (chunkSizeValue == 0) {
     chunkSizeValue = 1024 * 1024; // Default 1MB
   }
@@ -926,6 +1090,193 @@ RCT_REMAP_METHOD(decryptFileWithStreaming,
   }
 }
 
+// ✅ Partial decryption of a local file (matches Android RangeDecryptor): only the CBC blocks
+// covering [offset, offset + length) are read and decrypted. The IV for block n is ciphertext
+// block n - 1 (or the base IV for n = 0), and padding is only removed when the range reaches the last block.
+// Writes to outputUri when given, otherwise resolves the bytes as Base64 (up to 1MB).
+RCT_REMAP_METHOD(decryptRange,
+                 inputUri:(NSString *)inputUri
+                 keyBase64:(NSString *)keyBase64
+                 ivBase64:(NSString *)ivBase64
+                 offset:(nonnull NSNumber *)offset
+                 length:(nonnull NSNumber *)length
+                 outputUri:(NSString *)outputUri
+                 resolver:(RCTPromiseResolveBlock)resolve
+                 rejecter:(RCTPromiseRejectBlock)reject)
+{
+  long long rangeOffset = [offset longLongValue];
+  long long rangeLength = [length longLongValue];
+  BOOL toFile = outputUri != nil && outputUri.length > 0;
+  
+  NSLog(@"=== RANGE DECRYPTION START ===");
+  NSLog(@"inputUri: %@, offset: %lld, length: %lld", inputUri, rangeOffset, rangeLength);
+  
+  if (!inputUri || [inputUri hasPrefix:@"http"]) {
+    reject(@"DECRYPT_FAILED", @"decryptRange supports local files only", nil);
+    return;
+  }
+  
+  if (rangeOffset < 0 || rangeLength < 0) {
+    reject(@"DECRYPT_FAILED", [NSString stringWithFormat:@"Invalid range: offset %lld, length %lld", rangeOffset, rangeLength], nil);
+    return;
+  }
+  
+  if (!toFile && (unsigned long long)rangeLength > kMaxBase64Range) {
+    reject(@"DECRYPT_FAILED", @"Range too large for a Base64 result, pass an outputUri", nil);
+    return;
+  }
+  
+  NSData *keyData = [[NSData alloc] initWithBase64EncodedString:keyBase64 options:NSDataBase64DecodingIgnoreUnknownCharacters];
+  NSData *ivData = [[NSData alloc] initWithBase64EncodedString:ivBase64 options:NSDataBase64DecodingIgnoreUnknownCharacters];
+  
+  if (!keyData || keyData.length != kCCKeySizeAES256) {
+    reject(@"DECRYPT_FAILED", [NSString stringWithFormat:@"Invalid key data length: %lu", (unsigned long)keyData.length], nil);
+    return;
+  }
+  
+  if (!ivData || ivData.length != kCCBlockSizeAES128) {
+    reject(@"DECRYPT_FAILED", [NSString stringWithFormat:@"Invalid IV data length: %lu", (unsigned long)ivData.length], nil);
+    return;
+  }
+  
+  NSString *inputPath = [self convertFileUriToPath:inputUri];
+  NSFileManager *fileManager = [NSFileManager defaultManager];
+  if (![fileManager fileExistsAtPath:inputPath]) {
+    reject(@"DECRYPT_FAILED", [NSString stringWithFormat:@"Input file does not exist: %@", inputPath], nil);
+    return;
+  }
+  
+  NSDictionary *attrs = [fileManager attributesOfItemAtPath:inputPath error:nil];
+  unsigned long long fileSize = [attrs[NSFileSize] unsignedLongLongValue];
+  if (fileSize == 0 || fileSize % kCCBlockSizeAES128 != 0) {
+    reject(@"DECRYPT_FAILED", [NSString stringWithFormat:@"Invalid ciphertext size: %llu", fileSize], nil);
+    return;
+  }
+  
+  NSOutputStream *outputStream = nil;
+  NSMutableData *rangeData = nil;
+  if (toFile) {
+    NSString *outputPath = [self convertFileUriToPath:outputUri];
+    NSError *dirError = nil;
+    if (![fileManager createDirectoryAtPath:[outputPath stringByDeletingLastPathComponent] withIntermediateDirectories:YES attributes:nil error:&dirError]) {
+      reject(@"DECRYPT_FAILED", @"Failed to create output directory", nil);
+      return;
+    }
+    outputStream = [NSOutputStream outputStreamToFileAtPath:outputPath append:NO];
+    [outputStream open];
+  } else {
+    rangeData = [NSMutableData dataWithCapacity:(NSUInteger)rangeLength];
+  }
+  
+  unsigned long long totalBlocks = fileSize / kCCBlockSizeAES128;
+  unsigned long long firstBlock = (unsigned long long)rangeOffset / kCCBlockSizeAES128;
+  unsigned long long remaining = (unsigned long long)rangeLength;
+  NSFileHandle *fileHandle = nil;
+  CCCryptorRef cryptor = NULL;
+  uint8_t *outputBuffer = NULL;
+  CCCryptorStatus status = kCCSuccess;
+  NSString *errorMessage = nil;
+  
+  @try {
+    if (rangeLength > 0 && firstBlock < totalBlocks) {
+      unsigned long long lastBlock = MIN(((unsigned long long)rangeOffset + remaining - 1) / kCCBlockSizeAES128, totalBlocks - 1);
+      BOOL reachesEof = lastBlock == totalBlocks - 1;
+      fileHandle = [NSFileHandle fileHandleForReadingAtPath:inputPath];
+      
+      // IV for the first block is the preceding ciphertext block
+      NSData *blockIv = ivData;
+      if (firstBlock > 0) {
+        [fileHandle seekToFileOffset:(firstBlock - 1) * kCCBlockSizeAES128];
+        blockIv = [fileHandle readDataOfLength:kCCBlockSizeAES128];
+      }
+      
+      // Padding only exists in the final block, so mid-file ranges decrypt without it
+      status = CCCryptorCreate(kCCDecrypt, kCCAlgorithmAES, reachesEof ? kCCOptionPKCS7Padding : 0,
+                               keyData.bytes, keyData.length, blockIv.bytes, &cryptor);
+      if (status != kCCSuccess) {
+        errorMessage = @"Failed to create cryptor";
+      } else {
+        size_t bufferSize = kRangeReadSize + kCCBlockSizeAES128;
+        outputBuffer = (uint8_t *)malloc(bufferSize);
+        if (!outputBuffer) {
+          errorMessage = @"Memory allocation failed";
+        }
+        
+        [fileHandle seekToFileOffset:firstBlock * kCCBlockSizeAES128];
+        unsigned long long remainingCipher = (lastBlock - firstBlock + 1) * kCCBlockSizeAES128;
+        unsigned long long skip = (unsigned long long)rangeOffset - firstBlock * kCCBlockSizeAES128; // Leading bytes outside the range
+        
+        while (!errorMessage && remainingCipher > 0 && remaining > 0) {
+          @autoreleasepool {
+            NSUInteger toRead = (NSUInteger)MIN((unsigned long long)kRangeReadSize, remainingCipher);
+            NSData *chunk = [fileHandle readDataOfLength:toRead];
+            if (chunk.length != toRead) {
+              errorMessage = @"Unexpected end of input file";
+              break;
+            }
+            remainingCipher -= toRead;
+            
+            size_t outputLength = 0;
+            status = CCCryptorUpdate(cryptor, chunk.bytes, chunk.length, outputBuffer, bufferSize, &outputLength);
+            if (status == kCCSuccess && remainingCipher == 0) {
+              size_t finalLength = 0;
+              status = CCCryptorFinal(cryptor, outputBuffer + outputLength, bufferSize - outputLength, &finalLength);
+              outputLength += finalLength;
+            }
+            if (status != kCCSuccess) {
+              errorMessage = [NSString stringWithFormat:@"Decryption failed with status: %d", status];
+              break;
+            }
+            
+            size_t start = (size_t)MIN(skip, (unsigned long long)outputLength);
+            skip -= start;
+            NSUInteger count = (NSUInteger)MIN((unsigned long long)(outputLength - start), remaining);
+            if (count > 0) {
+              if (outputStream) {
+                if ([outputStream write:outputBuffer + start maxLength:count] != (NSInteger)count) {
+                  errorMessage = @"Failed to write output file";
+                  break;
+                }
+              } else {
+                [rangeData appendBytes:outputBuffer + start length:count];
+              }
+              remaining -= count;
+            }
+          }
+        }
+      }
+    }
+  } @catch (NSException *exception) {
+    errorMessage = [NSString stringWithFormat:@"Exception during range decryption: %@", exception.reason];
+  } @finally {
+    if (cryptor) CCCryptorRelease(cryptor);
+    if (outputBuffer) free(outputBuffer);
+    [fileHandle closeFile];
+    [outputStream close];
+  }
+  
+  if (errorMessage) {
+    NSLog(@"❌ Range decryption failed: %@", errorMessage);
+    reject(@"DECRYPT_FAILED", [NSString stringWithFormat:@"Range decryption failed: %@", errorMessage], nil);
+    return;
+  }
+  
+  unsigned long long written = (unsigned long long)rangeLength - remaining;
+  NSLog(@"✅ Range decryption completed: %llu bytes", written);
+  
+  NSMutableDictionary *result = [@{
+    @"success": @YES,
+    @"offset": @(rangeOffset),
+    @"length": @(written)
+  } mutableCopy];
+  if (toFile) {
+    result[@"localPath"] = outputUri;
+  } else {
+    result[@"dataBase64"] = [rangeData base64EncodedStringWithOptions:0];
+  }
+  resolve(result);
+}
+
 // ✅ NSURLSessionDataDelegate methods for progressive data reception
 - (void)URLSession:(NSURLSession *)session
           dataTask:(NSURLSessionDataTask *)dataTask
@@ -4,6 +4,18 @@
  */
 export const DEFAULT_CHUNK_SIZE = 1048576; // 1MB
 
+/**
+ * Pass as chunkSize to decryptFileWithStreaming to let Android tune network read size and
+ * decrypt/write batch size from measured throughput (iOS uses DEFAULT_CHUNK_SIZE instead)
+ */
+export const ADAPTIVE_CHUNK_SIZE = -1;
+
+/**
+ * Minimum text size for encryptTextContentCompressed to deflate before encrypting
+ * 1KB (1024 bytes) - smaller payloads are encrypted as-is
+ */
+export const DEFAULT_COMPRESSION_THRESHOLD = 1024; // 1KB
+
 /**
  * AES block size in bytes (16 bytes for AES-256-CBC)
  */
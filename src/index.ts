@@ -1,5 +1,41 @@
 import { NativeModules } from 'react-native';
 
+export interface AdaptiveSizingResult {
+  readSize: number;   // Final network/disk read size in bytes
+  batchSize: number;  // Final decrypt/write batch size in bytes
+  retunes: number;    // How many times the batch size changed
+  readMBps: number;   // Observed read throughput
+  cipherMBps: number; // Observed decrypt throughput
+  writeMBps: number;  // Observed write throughput
+}
+
+export interface MemoryBudgetStatus {
+  budgetBytes: number;       // Total bytes jobs may hold in memory at once
+  inFlightBytes: number;     // Bytes currently reserved by running jobs
+  peakBytes: number;         // Highest inFlightBytes seen since startup
+  inMemoryThreshold: number; // Inputs above this size are streamed / spilled to disk
+  activeJobs: number;
+  waitingJobs: number;       // Jobs blocked waiting for budget
+}
+
+export interface BufferPoolStats {
+  hits: number;          // Acquisitions served from the pool
+  misses: number;        // Acquisitions that allocated a new buffer
+  hitRate: number;       // hits / (hits + misses)
+  discarded: number;     // Released buffers dropped because the pool was full
+  retainedBytes: number; // Bytes held by idle pooled buffers
+  outstanding: number;   // Buffers currently in use
+  leakTracking: boolean; // True in debuggable builds
+}
+
+export interface CipherProviderInfo {
+  provider: string;             // JCE provider used by all cipher paths
+  source: 'default' | 'cached' | 'benchmark' | 'override';
+  recommendedChunkSize: number; // Fastest chunk size measured for the provider (0 = not calibrated yet)
+  calibrating: boolean;
+  throughputMBps: { [provider: string]: number }; // Results of the last calibration run
+}
+
 interface CryptoModuleInterface {
   decryptFile(
     inputUri: string,
@@ -23,6 +59,13 @@ interface CryptoModuleInterface {
     chunkSize?: number // Optional with default
   ): Promise<string>;
   
+  encryptTextContentCompressed(
+    textContent: string,
+    keyBase64: string,
+    ivBase64: string,
+    compressionThreshold?: number // Optional, texts smaller than this (bytes) are not compressed
+  ): Promise<string>;
+  
   encryptDataStreaming(
     inputDataBase64: string,
     keyBase64: string,
@@ -33,9 +76,47 @@ interface CryptoModuleInterface {
     totalChunks: number;
     totalProcessed: number;
   }>;
+  
+  decryptFileWithStreaming(
+    inputUri: string,
+    outputUri: string,
+    keyBase64: string,
+    ivBase64: string,
+    token: string | null,
+    chunkSize?: number // Optional; ADAPTIVE_CHUNK_SIZE enables adaptive sizing (Android)
+  ): Promise<{
+    success: boolean;
+    localPath: string;
+    size: number;
+    adaptive?: AdaptiveSizingResult; // Present in adaptive mode
+  }>;
+  
+  decryptRange(
+    inputUri: string,
+    keyBase64: string,
+    ivBase64: string,
+    offset: number, // Plaintext byte offset
+    length: number, // Plaintext byte count (clamped at end of file)
+    outputUri?: string | null // Write to this file; omit for a Base64 result (max 1MB)
+  ): Promise<{
+    success: boolean;
+    offset: number;
+    length: number;      // Bytes actually returned
+    localPath?: string;  // When outputUri was given
+    dataBase64?: string; // When no outputUri was given
+  }>;
+  
+  // Android only: undefined on iOS, so check before calling
+  getMemoryBudgetStatus?(): Promise<MemoryBudgetStatus>;
+  
+  getBufferPoolStats?(): Promise<BufferPoolStats>;
+  
+  getCipherProviderInfo?(): Promise<CipherProviderInfo>;
+  
+  setCipherProvider?(providerName: string | null): Promise<string>;
 }
 
 const CryptoModule: CryptoModuleInterface = NativeModules.CryptoModule;
 
 export default CryptoModule;
-export { DEFAULT_CHUNK_SIZE, AES_BLOCK_SIZE } from './constants';
+export { DEFAULT_CHUNK_SIZE, ADAPTIVE_CHUNK_SIZE, AES_BLOCK_SIZE, DEFAULT_COMPRESSION_THRESHOLD } from './constants';
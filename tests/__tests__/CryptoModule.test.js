@@ -1,6 +1,6 @@
 // ✅ tests/__tests__/CryptoModule.test.js
 import { NativeModules } from 'react-native';
-import CryptoModule from '../../src/index';
+import CryptoModule, { ADAPTIVE_CHUNK_SIZE } from '../../src/index';
 import {
   createTestFile,
   createBinaryTestFile,
@@ -100,6 +100,40 @@ describe('CryptoModule', () => {
     });
   });
 
+  describe('Compressed Text Encryption', () => {
+    test('should encrypt large text content with compression', async () => {
+      const largeText = createLargeTestData(1); // 1MB
+      const key = global.TEST_DATA.base64Key;
+      const iv = global.TEST_DATA.base64IV;
+
+      MockedModule.encryptTextContentCompressed.mockResolvedValue('Q29tcHJlc3NlZEVuY3J5cHRlZA==');
+
+      const result = await CryptoModule.encryptTextContentCompressed(largeText, key, iv);
+
+      expect(MockedModule.encryptTextContentCompressed).toHaveBeenCalledWith(
+        largeText,
+        key,
+        iv,
+        undefined // compressionThreshold is optional
+      );
+      expect(result).toBe('Q29tcHJlc3NlZEVuY3J5cHRlZA==');
+    });
+
+    test('should decrypt compressed content with decryptTextContent', async () => {
+      const expectedDecrypted = global.TEST_DATA.sampleText;
+
+      MockedModule.decryptTextContent.mockResolvedValue(expectedDecrypted);
+
+      const result = await CryptoModule.decryptTextContent(
+        'Q29tcHJlc3NlZEVuY3J5cHRlZA==',
+        global.TEST_DATA.base64Key,
+        global.TEST_DATA.base64IV
+      );
+
+      expect(result).toBe(expectedDecrypted);
+    });
+  });
+
   describe('File Encryption/Decryption', () => {
     test('should decrypt file successfully', async () => {
       const inputPath = await createTestFile('encrypted content', 'test-encrypted.txt');
@@ -161,6 +195,70 @@ describe('CryptoModule', () => {
       expect(result.success).toBe(true);
     });
 
+    test('should report chosen sizes in adaptive streaming mode', async () => {
+      MockedModule.decryptFileWithStreaming.mockResolvedValue({
+        success: true,
+        localPath: '/tmp/output.mp4',
+        size: 5242880,
+        adaptive: {
+          readSize: 65536,
+          batchSize: 524288,
+          retunes: 3,
+          readMBps: 2.1,
+          cipherMBps: 310.5,
+          writeMBps: 95.2,
+        },
+      });
+
+      const result = await CryptoModule.decryptFileWithStreaming(
+        'https://example.com/video.enc',
+        '/tmp/output.mp4',
+        global.TEST_DATA.base64Key,
+        global.TEST_DATA.base64IV,
+        'test-token',
+        ADAPTIVE_CHUNK_SIZE
+      );
+
+      expect(MockedModule.decryptFileWithStreaming).toHaveBeenCalledWith(
+        'https://example.com/video.enc',
+        '/tmp/output.mp4',
+        global.TEST_DATA.base64Key,
+        global.TEST_DATA.base64IV,
+        'test-token',
+        -1
+      );
+      expect(result.adaptive.batchSize % 16).toBe(0);
+      expect(result.adaptive.readSize).toBeLessThanOrEqual(result.adaptive.batchSize);
+    });
+
+    test('should decrypt a byte range to Base64', async () => {
+      MockedModule.decryptRange.mockResolvedValue({
+        success: true,
+        offset: 1024,
+        length: 8,
+        dataBase64: 'AAAAIGZ0eXA=',
+      });
+
+      const result = await CryptoModule.decryptRange(
+        'file:///path/to/video.enc',
+        global.TEST_DATA.base64Key,
+        global.TEST_DATA.base64IV,
+        1024,
+        8
+      );
+
+      expect(MockedModule.decryptRange).toHaveBeenCalledWith(
+        'file:///path/to/video.enc',
+        global.TEST_DATA.base64Key,
+        global.TEST_DATA.base64IV,
+        1024,
+        8,
+        undefined // outputUri is optional
+      );
+      expect(result.length).toBe(8);
+      expect(result.dataBase64).toBeDefined();
+    });
+
     test('should handle file not found error', async () => {
       MockedModule.decryptFile.mockRejectedValue(new Error('Input file does not exist'));
 
@@ -217,6 +315,69 @@ describe('CryptoModule', () => {
     });
   });
 
+  describe('Memory Budget', () => {
+    test('should report memory budget usage', async () => {
+      MockedModule.getMemoryBudgetStatus.mockResolvedValue({
+        budgetBytes: 67108864,
+        inFlightBytes: 2097152,
+        peakBytes: 4194304,
+        inMemoryThreshold: 16777216,
+        activeJobs: 1,
+        waitingJobs: 0,
+      });
+
+      const status = await CryptoModule.getMemoryBudgetStatus();
+
+      expect(MockedModule.getMemoryBudgetStatus).toHaveBeenCalled();
+      expect(status.inFlightBytes).toBeLessThanOrEqual(status.budgetBytes);
+      expect(status.inMemoryThreshold).toBeLessThan(status.budgetBytes);
+    });
+  });
+
+  describe('Buffer Pool', () => {
+    test('should report buffer pool statistics', async () => {
+      MockedModule.getBufferPoolStats.mockResolvedValue({
+        hits: 98,
+        misses: 2,
+        hitRate: 0.98,
+        discarded: 0,
+        retainedBytes: 2097184,
+        outstanding: 0,
+        leakTracking: true,
+      });
+
+      const stats = await CryptoModule.getBufferPoolStats();
+
+      expect(MockedModule.getBufferPoolStats).toHaveBeenCalled();
+      expect(stats.hitRate).toBeCloseTo(stats.hits / (stats.hits + stats.misses));
+      expect(stats.outstanding).toBe(0);
+    });
+  });
+
+  describe('Cipher Provider Selection', () => {
+    test('should report the calibrated cipher provider', async () => {
+      MockedModule.getCipherProviderInfo.mockResolvedValue({
+        provider: 'AndroidOpenSSL',
+        source: 'benchmark',
+        recommendedChunkSize: 262144,
+        calibrating: false,
+        throughputMBps: { AndroidOpenSSL: 812.4, BC: 96.3 },
+      });
+
+      const info = await CryptoModule.getCipherProviderInfo();
+
+      expect(info.provider).toBe('AndroidOpenSSL');
+      expect(info.source).toBe('benchmark');
+    });
+
+    test('should reject unknown provider overrides', async () => {
+      MockedModule.setCipherProvider.mockRejectedValue(new Error('Cipher provider not available: Nope'));
+
+      await expect(CryptoModule.setCipherProvider('Nope')).rejects.toThrow('Cipher provider not available');
+      expect(MockedModule.setCipherProvider).toHaveBeenCalledWith('Nope');
+    });
+  });
+
   describe('Parameter Validation', () => {
     test('should validate key length', async () => {
       MockedModule.encryptTextContent.mockRejectedValue(new Error('Invalid key length'));
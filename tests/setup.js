@@ -5,9 +5,15 @@ import { NativeModules } from 'react-native';
 NativeModules.CryptoModule = {
   decryptFile: jest.fn(),
   decryptFileWithStreaming: jest.fn(),
+  decryptRange: jest.fn(),
   decryptTextContent: jest.fn(),
   encryptTextContent: jest.fn(),
+  encryptTextContentCompressed: jest.fn(),
   encryptDataStreaming: jest.fn(),
+  getMemoryBudgetStatus: jest.fn(),
+  getBufferPoolStats: jest.fn(),
+  getCipherProviderInfo: jest.fn(),
+  setCipherProvider: jest.fn(),
 };
 
 // Mock console methods for cleaner test output